@@ -1,7 +1,11 @@
 package com.anterka.bjyotish.config;
 
+import com.anterka.bjyotish.security.OffloadingPasswordEncoder;
 import com.anterka.bjyotish.service.BjyotishUserService;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -9,25 +13,77 @@ import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @RequiredArgsConstructor
 @EnableWebSecurity
 public class ApplicationAuthConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(ApplicationAuthConfig.class);
+    private static final String CALIBRATION_PASSWORD = "bcrypt-cost-calibration";
+
     private final BjyotishUserService bjyotishUserService;
 
+    /**
+     * fixed BCrypt strength, when not set (0) the strength is calibrated at startup
+     */
+    @Value("${security.password.bcrypt.strength:0}")
+    private int bcryptStrength;
+
+    @Value("${security.password.bcrypt.target-millis:250}")
+    private long bcryptTargetMillis;
+
+    @Value("${security.password.bcrypt.min-strength:10}")
+    private int bcryptMinStrength;
+
+    @Value("${security.password.bcrypt.max-strength:14}")
+    private int bcryptMaxStrength;
+
+    @Value("${security.password.hashing.queue-capacity:64}")
+    private int hashingQueueCapacity;
+
+    @Value("${security.password.hashing.timeout-millis:5000}")
+    private long hashingTimeoutMillis;
+
+    @Value("${security.password.hashing.retry-after-seconds:2}")
+    private long hashingRetryAfterSeconds;
+
     @Bean
-    public AuthenticationManager authenticationManager(){
+    public AuthenticationManager authenticationManager(PasswordEncoder passwordEncoder){
         DaoAuthenticationProvider daoAuthenticationProvider = new DaoAuthenticationProvider(bjyotishUserService);
-        daoAuthenticationProvider.setPasswordEncoder(passwordEncoder());
+        daoAuthenticationProvider.setPasswordEncoder(passwordEncoder);
         return new ProviderManager(daoAuthenticationProvider);
     }
 
-
     @Bean
-    public BCryptPasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+    public OffloadingPasswordEncoder passwordEncoder(){
+        int strength = bcryptStrength > 0 ? bcryptStrength : calibrateBcryptStrength();
+        log.info("Using BCrypt strength {} for password hashing", strength);
+        return new OffloadingPasswordEncoder(new BCryptPasswordEncoder(strength), Runtime.getRuntime().availableProcessors(),
+                hashingQueueCapacity, hashingTimeoutMillis, hashingRetryAfterSeconds);
     }
-}
 
+    /**
+     * Picks the highest strength whose hashing time stays within the target latency on this hardware.
+     * Every extra strength doubles the cost, so the measurement stops as soon as the next one would exceed it.
+     */
+    private int calibrateBcryptStrength() {
+        int strength = bcryptMinStrength;
+        for (int candidate = bcryptMinStrength; candidate <= bcryptMaxStrength; candidate++) {
+            long start = System.nanoTime();
+            new BCryptPasswordEncoder(candidate).encode(CALIBRATION_PASSWORD);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (elapsedMillis > bcryptTargetMillis && candidate > bcryptMinStrength) {
+                break;
+            }
+            strength = candidate;
+            if (elapsedMillis * 2 > bcryptTargetMillis) {
+                break;
+            }
+        }
+        return strength;
+    }
+}
@@ -1,5 +1,9 @@
 package com.anterka.bjyotish.config;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.Getter;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.slf4j.Logger;
@@ -8,7 +12,19 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import redis.clients.jedis.Connection;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.RedisProtocol;
+import redis.clients.jedis.csc.Cache;
+import redis.clients.jedis.csc.CacheConfig;
+import redis.clients.jedis.csc.CacheFactory;
+import redis.clients.jedis.csc.CacheStats;
+import redis.clients.jedis.csc.DefaultCacheable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
 
 @Configuration
 public class RedisConfig {
@@ -31,6 +47,17 @@ public class RedisConfig {
     @Value("${redis.use-ssl}")
     private boolean useSsl;
 
+    /**
+     * properties related to the client side cache, the read-only commands on the keys of [key-prefixes] are served
+     * from the heap and the server pushes an invalidation (RESP3 tracking) when such a key changes or expires
+     * */
+    @Value("${redis.client-side-cache.enabled:false}")
+    private boolean clientSideCacheEnabled;
+    @Value("${redis.client-side-cache.max-size:10000}")
+    private int clientSideCacheMaxSize;
+    @Value("${redis.client-side-cache.key-prefixes:token_epoch:,access_token_denylist:,password_reset:}")
+    private List<String> clientSideCacheKeyPrefixes;
+
     /**
      * properties related to the password operations
      * */
@@ -56,7 +83,9 @@ public class RedisConfig {
         poolConfig.setMinIdle(minIdle);
         poolConfig.setMaxIdle(maxIdle);
         poolConfig.setMaxTotal(maxTotal);
-        JedisPooled jedisClient = new JedisPooled(poolConfig, host, port, timeout, password, useSsl);
+        JedisPooled jedisClient = clientSideCacheEnabled
+                ? new JedisPooled(new HostAndPort(host, port), clientConfig(), clientSideCache(), poolConfig)
+                : new JedisPooled(poolConfig, host, port, timeout, password, useSsl);
         try{
             if(jedisClient.ping().equalsIgnoreCase("PONG")){
                 log.info("Successfully connected to Redis");
@@ -67,4 +96,59 @@ public class RedisConfig {
         return jedisClient;
     }
 
+    /**
+     * publishes the statistics of the client side cache, the hit ratio is [hits / (hits + misses)]
+     */
+    @Bean
+    public MeterBinder redisClientSideCacheMetrics(JedisPooled jedisPooled) {
+        return registry -> {
+            Cache cache = jedisPooled.getCache();
+            if (cache == null) {
+                return;
+            }
+            registerCacheCounter(registry, cache, "hits", "Reads served from the client side cache", CacheStats::getHitCount);
+            registerCacheCounter(registry, cache, "misses", "Cacheable reads sent to Redis", CacheStats::getMissCount);
+            registerCacheCounter(registry, cache, "invalidations", "Entries invalidated by the server", CacheStats::getInvalidationCount);
+            registerCacheCounter(registry, cache, "evictions", "Entries evicted to stay within the max size", CacheStats::getEvictCount);
+            registerCacheCounter(registry, cache, "non_cacheable", "Reads bypassing the client side cache", CacheStats::getNonCacheableCount);
+            Gauge.builder("bjyotish.redis.client_side_cache.size", cache, Cache::getSize)
+                    .description("Entries held by the client side cache")
+                    .register(registry);
+        };
+    }
+
+    private static void registerCacheCounter(MeterRegistry registry, Cache cache, String name,
+                                             String description, ToDoubleFunction<CacheStats> count) {
+        FunctionCounter.builder("bjyotish.redis.client_side_cache." + name, cache, c -> count.applyAsDouble(c.getStats()))
+                .description(description)
+                .register(registry);
+    }
+
+    private DefaultJedisClientConfig clientConfig() {
+        // the client side cache needs the RESP3 push messages for the invalidations
+        return DefaultJedisClientConfig.builder()
+                .protocol(RedisProtocol.RESP3)
+                .timeoutMillis(timeout)
+                .password(password)
+                .ssl(useSsl)
+                .build();
+    }
+
+    private Cache clientSideCache() {
+        return CacheFactory.getCache(CacheConfig.builder()
+                .maxSize(clientSideCacheMaxSize)
+                .cacheable((command, keys) -> DefaultCacheable.isDefaultCacheableCommand(command)
+                        && keys.stream().allMatch(key -> hasClientSideCachePrefix(key instanceof byte[] bytes
+                                ? new String(bytes, StandardCharsets.UTF_8) : String.valueOf(key))))
+                .build());
+    }
+
+    private boolean hasClientSideCachePrefix(String key) {
+        for (String prefix : clientSideCacheKeyPrefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,37 @@
+package com.anterka.bjyotish.config;
+
+import org.apache.catalina.valves.RemoteIpValve;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+@Configuration
+public class WebServerConfig {
+
+    /**
+     * [request.getRemoteAddr()] is the client address used by the rate limits and the sessions, the
+     * [X-Forwarded-For] header is only honoured when the request comes through a trusted proxy.
+     * [server.client-ip.internal-proxies] : regex of the proxies in front of the app, defaults to the private and loopback ranges
+     * [server.client-ip.trusted-proxies] : regex of further trusted proxies, e.g. the CDN ranges
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> remoteIpValveCustomizer(
+            @Value("${server.client-ip.internal-proxies:}") String internalProxies,
+            @Value("${server.client-ip.trusted-proxies:}") String trustedProxies) {
+        return factory -> {
+            RemoteIpValve remoteIpValve = new RemoteIpValve();
+            remoteIpValve.setRemoteIpHeader("X-Forwarded-For");
+            remoteIpValve.setProtocolHeader("X-Forwarded-Proto");
+            if (StringUtils.hasText(internalProxies)) {
+                remoteIpValve.setInternalProxies(internalProxies);
+            }
+            if (StringUtils.hasText(trustedProxies)) {
+                remoteIpValve.setTrustedProxies(trustedProxies);
+            }
+            factory.addEngineValves(remoteIpValve);
+        };
+    }
+}
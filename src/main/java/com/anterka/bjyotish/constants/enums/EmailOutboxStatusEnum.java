@@ -0,0 +1,8 @@
+package com.anterka.bjyotish.constants.enums;
+
+public enum EmailOutboxStatusEnum {
+    PENDING,
+    SENDING,
+    SENT,
+    DEAD
+}
@@ -1,9 +1,11 @@
 package com.anterka.bjyotish.controller;
 
 import com.anterka.bjyotish.exception.*;
+import com.anterka.bjyotish.service.ratelimit.RateLimitHeaders;
 import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -71,4 +73,18 @@ public class GlobalAdviceController extends RuntimeException {
     public ResponseEntity<ErrorResponse> handlePasswordReusedException(PasswordReusedException ex){
         return new ResponseEntity<>(new ErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST), HttpStatus.BAD_REQUEST);
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handlePasswordHashingUnavailableException(PasswordHashingUnavailableException ex){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ErrorResponse(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleRateLimitExceededException(RateLimitExceededException ex){
+        HttpHeaders headers = new HttpHeaders();
+        RateLimitHeaders.write(ex.getDecision(), headers::set);
+        return new ResponseEntity<>(new ErrorResponse(ex.getMessage(), HttpStatus.TOO_MANY_REQUESTS), headers, HttpStatus.TOO_MANY_REQUESTS);
+    }
+}
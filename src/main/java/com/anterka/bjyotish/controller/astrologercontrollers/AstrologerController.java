@@ -4,6 +4,7 @@ import com.anterka.bjyotish.controller.constants.ApiPaths;
 import com.anterka.bjyotish.dto.users.request.AstrologerRegistrationRequest;
 import com.anterka.bjyotish.dto.users.response.UserRegistrationResponse;
 import com.anterka.bjyotish.service.BjyotishAuthenticationService;
+import com.anterka.bjyotish.service.ratelimit.RateLimited;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +20,7 @@ public class AstrologerController {
 
     private final BjyotishAuthenticationService bjyotishAuthenticationService;
 
+    @RateLimited(policy = "register")
     @PostMapping(ApiPaths.ASTROLOGER_REGISTER)
     public ResponseEntity<UserRegistrationResponse> register(@Valid @RequestBody AstrologerRegistrationRequest astrologerRegistrationRequest) {
         log.info("Received registration request for email:{}", astrologerRegistrationRequest.getEmail());
@@ -4,6 +4,7 @@ import com.anterka.bjyotish.controller.constants.ApiPaths;
 import com.anterka.bjyotish.dto.users.request.ClientRegistrationRequest;
 import com.anterka.bjyotish.dto.users.response.UserRegistrationResponse;
 import com.anterka.bjyotish.service.BjyotishAuthenticationService;
+import com.anterka.bjyotish.service.ratelimit.RateLimited;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +20,7 @@ public class ClientController {
 
     private final BjyotishAuthenticationService bjyotishAuthenticationService;
 
+    @RateLimited(policy = "register")
     @PostMapping(ApiPaths.CUSTOMER_REGISTER)
     public ResponseEntity<UserRegistrationResponse> registerClient(@Valid @RequestBody ClientRegistrationRequest clientRegistrationRequest) {
         log.info("Received registration request for email: " + clientRegistrationRequest.getEmail());
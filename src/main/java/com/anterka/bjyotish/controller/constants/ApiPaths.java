@@ -13,6 +13,9 @@ public class ApiPaths {
     // Complete API base path
     public static final String API_V1_BASE = API_PREFIX + VERSION_V1;
 
+    // Public key set used by gateways and other services to verify the access tokens
+    public static final String JWKS = "/.well-known/jwks.json";
+
     // ========================================
     // USER MANAGEMENT PATHS
     // ========================================
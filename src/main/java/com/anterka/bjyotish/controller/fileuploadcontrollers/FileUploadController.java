@@ -8,6 +8,8 @@ import com.anterka.bjyotish.dto.file.FileUploadResponse;
 import com.anterka.bjyotish.entities.BjyotishUser;
 import com.anterka.bjyotish.service.BjyotishUserService;
 import com.anterka.bjyotish.service.file.cloud.CloudinaryService;
+import com.anterka.bjyotish.service.ratelimit.RateLimitKey;
+import com.anterka.bjyotish.service.ratelimit.RateLimited;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tomcat.util.http.fileupload.FileUploadException;
@@ -30,6 +32,7 @@ public class FileUploadController {
     private final CloudinaryService cloudinaryService;
     private final BjyotishUserService bjyotishUserService;
 
+    @RateLimited(policy = "file_upload", keys = RateLimitKey.USER)
     @PostMapping("/upload")
     public ResponseEntity<FileUploadResponse> uploadFile(
             @RequestParam("file") MultipartFile file,
@@ -59,6 +62,7 @@ public class FileUploadController {
         return ResponseEntity.ok(response);
     }
 
+    @RateLimited(policy = "file_upload", keys = RateLimitKey.USER)
     @PostMapping("/upload/bulk")
     public ResponseEntity<BulkUploadResponse> uploadBulkFiles(
             @RequestParam("files") List<MultipartFile> files,
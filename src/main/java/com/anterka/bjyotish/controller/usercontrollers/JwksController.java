@@ -0,0 +1,29 @@
+package com.anterka.bjyotish.controller.usercontrollers;
+
+import com.anterka.bjyotish.controller.constants.ApiPaths;
+import com.anterka.bjyotish.security.jwt.JwtKeyRing;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwtKeyRing jwtKeyRing;
+
+    /**
+     * Serves the public keys of the token key ring, so that the tokens can be verified locally by edge proxies
+     */
+    @GetMapping(ApiPaths.JWKS)
+    public ResponseEntity<Map<String, Object>> getJwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic())
+                .body(jwtKeyRing.getPublicJwks());
+    }
+}
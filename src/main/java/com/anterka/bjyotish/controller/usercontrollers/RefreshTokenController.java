@@ -4,7 +4,6 @@ import com.anterka.bjyotish.controller.constants.ApiPaths;
 import com.anterka.bjyotish.dto.users.request.RefreshTokenRequest;
 import com.anterka.bjyotish.dto.users.response.UserLoginResponse;
 import com.anterka.bjyotish.service.RefreshTokenService;
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -27,13 +26,12 @@ public class RefreshTokenController {
      */
     @PostMapping("/refresh")
     public ResponseEntity<UserLoginResponse> refreshToken(
-            @Valid @RequestBody RefreshTokenRequest request,
-            HttpServletRequest httpRequest) {
+            @Valid @RequestBody RefreshTokenRequest request) {
 
         log.info("Received refresh token request");
 
         Optional<RefreshTokenService.TokenRefreshResult> result =
-                refreshTokenService.refreshAccessToken(request.getRefreshToken(), httpRequest);
+                refreshTokenService.refreshAccessToken(request.getRefreshToken());
 
         if (result.isEmpty()) {
             log.warn("Invalid refresh token provided");
@@ -2,9 +2,12 @@ package com.anterka.bjyotish.dao;
 
 import com.anterka.bjyotish.entities.BjyotishUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +17,12 @@ public interface BjyotishUserRepository extends JpaRepository<BjyotishUser, Long
     @Query("SELECT u FROM BjyotishUser u WHERE u.email = :email OR u.phone = :phone")
     Optional<BjyotishUser> findByEmailOrPhone(String email, String phone);
 
+    @Modifying
+    @Query("UPDATE BjyotishUser u SET u.lastLoginAt = :loginAt WHERE u.id = :userId")
+    void updateLastLoginAt(@Param("userId") Long userId, @Param("loginAt") Instant loginAt);
+
+    @Modifying
+    @Query("UPDATE BjyotishUser u SET u.passwordHash = :passwordHash WHERE u.id = :userId")
+    void updatePasswordHash(@Param("userId") Long userId, @Param("passwordHash") String passwordHash);
+
 }
@@ -0,0 +1,71 @@
+package com.anterka.bjyotish.dao;
+
+import com.anterka.bjyotish.constants.enums.EmailOutboxStatusEnum;
+import com.anterka.bjyotish.entities.EmailOutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    /**
+     * leases up to [batchSize] due mails to the caller until [lockedUntil], the rows locked by another worker are
+     * skipped instead of waited for, a mail whose lease expired without an outcome is claimed again
+     */
+    @Transactional
+    @Query(value = """
+            WITH claimed AS (
+                UPDATE email_outbox SET status = 'SENDING', attempts = attempts + 1, locked_until = :lockedUntil
+                WHERE id IN (SELECT id FROM email_outbox
+                             WHERE (status = 'PENDING' AND next_attempt_at <= :now)
+                                OR (status = 'SENDING' AND locked_until < :now)
+                             ORDER BY next_attempt_at, id
+                             LIMIT :batchSize
+                             FOR UPDATE SKIP LOCKED)
+                RETURNING *
+            )
+            SELECT * FROM claimed
+            """, nativeQuery = true)
+    List<EmailOutboxMessage> claimDueMessages(@Param("now") Instant now,
+                                              @Param("lockedUntil") Instant lockedUntil,
+                                              @Param("batchSize") int batchSize);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutboxMessage m SET m.status = com.anterka.bjyotish.constants.enums.EmailOutboxStatusEnum.SENT, m.sentAt = :sentAt, m.body = null, m.lockedUntil = null, m.lastError = null WHERE m.id IN :ids")
+    int markSent(@Param("ids") List<Long> ids, @Param("sentAt") Instant sentAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutboxMessage m SET m.status = com.anterka.bjyotish.constants.enums.EmailOutboxStatusEnum.PENDING, m.nextAttemptAt = :nextAttemptAt, m.lockedUntil = null, m.lastError = :lastError WHERE m.id = :id")
+    int scheduleRetry(@Param("id") Long id, @Param("nextAttemptAt") Instant nextAttemptAt, @Param("lastError") String lastError);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutboxMessage m SET m.status = com.anterka.bjyotish.constants.enums.EmailOutboxStatusEnum.DEAD, m.lockedUntil = null, m.lastError = :lastError WHERE m.id = :id")
+    int markDead(@Param("id") Long id, @Param("lastError") String lastError);
+
+    /**
+     * deletes up to [batchSize] of the SENT and DEAD mails enqueued before [before]
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            DELETE FROM email_outbox
+            WHERE id IN (SELECT id FROM email_outbox
+                         WHERE status IN ('SENT', 'DEAD') AND created_at < :before
+                         ORDER BY id
+                         LIMIT :batchSize)
+            """, nativeQuery = true)
+    int deleteFinishedBatch(@Param("before") Instant before, @Param("batchSize") int batchSize);
+
+    long countByStatus(EmailOutboxStatusEnum status);
+}
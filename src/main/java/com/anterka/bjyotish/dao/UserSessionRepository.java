@@ -11,15 +11,71 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Repository
 public interface UserSessionRepository extends JpaRepository<UserSession, Long> {
-    Optional<UserSession> findByRefreshTokenAndIsActiveTrue(String refreshToken);
-
-    Optional<UserSession> findBySessionTokenAndIsActiveTrue(String sessionToken);
+    Optional<UserSession> findByRefreshTokenHashAndIsActiveTrue(byte[] refreshTokenHash);
 
     List<UserSession> findByBjyotishUserIdAndIsActiveTrue(Long bjyotishUserId);
 
+    Optional<UserSession> findBySessionId(UUID sessionId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserSession us SET us.isActive = false, us.updatedAt = :updatedAt WHERE us.sessionId = :sessionId AND us.isActive = true")
+    int deactivateSession(@Param("sessionId") UUID sessionId, @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * replaces the refresh token only while [currentRefreshTokenHash] is still the token of the active session
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserSession us SET us.refreshTokenHash = :newRefreshTokenHash, us.accessTokenId = :accessTokenId, us.updatedAt = :updatedAt " +
+            "WHERE us.sessionId = :sessionId AND us.refreshTokenHash = :currentRefreshTokenHash AND us.isActive = true")
+    int rotateRefreshToken(@Param("sessionId") UUID sessionId,
+                           @Param("currentRefreshTokenHash") byte[] currentRefreshTokenHash,
+                           @Param("newRefreshTokenHash") byte[] newRefreshTokenHash,
+                           @Param("accessTokenId") UUID accessTokenId,
+                           @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * serializes the session writes of a user until the end of the transaction
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:userId)", nativeQuery = true)
+    Integer lockSessionsOfUser(@Param("userId") Long userId);
+
+    /**
+     * inserts the new session and deactivates the active sessions of the user beyond [keepExisting] in one statement,
+     * the sub-select does not see the row inserted by the same statement so [keepExisting] is the limit minus one
+     * @return the deactivated sessions
+     */
+    @Query(value = """
+            WITH inserted AS (
+                INSERT INTO user_sessions (session_id, bjyotish_user_id, refresh_token_hash, access_token_id, expires_at,
+                                           is_active, ip_address, user_agent, created_at, updated_at)
+                VALUES (:sessionId, :userId, :refreshTokenHash, :accessTokenId, :expiresAt,
+                        true, CAST(:ipAddress AS INET), :userAgent, :createdAt, :createdAt)
+            ), evicted AS (
+                UPDATE user_sessions SET is_active = false, updated_at = :createdAt
+                WHERE id IN (SELECT id FROM user_sessions
+                             WHERE bjyotish_user_id = :userId AND is_active
+                             ORDER BY created_at DESC, id DESC
+                             OFFSET :keepExisting)
+                RETURNING *
+            )
+            SELECT * FROM evicted
+            """, nativeQuery = true)
+    List<UserSession> insertSessionAndEvictBeyond(@Param("sessionId") UUID sessionId,
+                                                  @Param("userId") Long userId,
+                                                  @Param("refreshTokenHash") byte[] refreshTokenHash,
+                                                  @Param("accessTokenId") UUID accessTokenId,
+                                                  @Param("expiresAt") Instant expiresAt,
+                                                  @Param("ipAddress") String ipAddress,
+                                                  @Param("userAgent") String userAgent,
+                                                  @Param("createdAt") Instant createdAt,
+                                                  @Param("keepExisting") int keepExisting);
+
     @Modifying
     @Transactional
     @Query("UPDATE UserSession us SET us.isActive = false WHERE us.bjyotishUserId = :userId")
@@ -27,14 +83,33 @@ public interface UserSessionRepository extends JpaRepository<UserSession, Long>
 
     @Modifying
     @Transactional
-    @Query("UPDATE UserSession us SET us.isActive = false WHERE us.refreshToken = :refreshToken")
-    void deactivateSessionByRefreshToken(@Param("refreshToken") String refreshToken);
+    @Query("UPDATE UserSession us SET us.isActive = false WHERE us.refreshTokenHash = :refreshTokenHash AND us.isActive = true")
+    void deactivateSessionByRefreshTokenHash(@Param("refreshTokenHash") byte[] refreshTokenHash);
 
-    @Modifying
+    /**
+     * deletes the next batch of the expired sessions in the primary key order, starting after [afterId],
+     * each batch is a short transaction of its own so the locks and the WAL stay bounded,
+     * the aliases are quoted since Postgres folds them to lower case and the projection matches them by name
+     */
     @Transactional
-    @Query("DELETE FROM UserSession us WHERE us.expiresAt < :expiredTime")
-    void deleteExpiredSessions(@Param("expiredTime") Instant expiredTime);
+    @Query(value = """
+            WITH batch AS (
+                SELECT id FROM user_sessions
+                WHERE id > :afterId AND expires_at < :expiredTime
+                ORDER BY id
+                LIMIT :batchSize
+            ), deleted AS (
+                DELETE FROM user_sessions WHERE id IN (SELECT id FROM batch) RETURNING id
+            )
+            SELECT COUNT(*) AS "deletedCount", MAX(id) AS "lastId" FROM deleted
+            """, nativeQuery = true)
+    PurgedBatch deleteExpiredSessionsBatch(@Param("afterId") long afterId,
+                                           @Param("expiredTime") Instant expiredTime,
+                                           @Param("batchSize") int batchSize);
+
+    interface PurgedBatch {
+        long getDeletedCount();
 
-    @Query("SELECT COUNT(us) FROM UserSession us WHERE us.bjyotishUserId = :userId AND us.isActive = true")
-    long countActiveSessionsForUser(@Param("userId") Long userId);
+        Long getLastId();
+    }
 }
@@ -0,0 +1,8 @@
+package com.anterka.bjyotish.dto.users.request;
+
+/**
+ * Request body naming the account it acts on, so that it can be rate limited per email with [RateLimitKey.EMAIL]
+ */
+public interface EmailAddressedRequest {
+    String getEmail();
+}
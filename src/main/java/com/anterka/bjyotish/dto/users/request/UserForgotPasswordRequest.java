@@ -3,7 +3,7 @@ package com.anterka.bjyotish.dto.users.request;
 import lombok.Data;
 
 @Data
-public class UserForgotPasswordRequest {
+public class UserForgotPasswordRequest implements EmailAddressedRequest {
     private String email;
     private String forgotPasswordLink;
 }
@@ -10,7 +10,7 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class UserLoginRequest {
+public class UserLoginRequest implements EmailAddressedRequest {
 
     @NotBlank(message = "Email is required")
     @Email(message = "Please provide a valid email address")
@@ -11,7 +11,7 @@ import lombok.NoArgsConstructor;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class UserResendOtpRequest {
+public class UserResendOtpRequest implements EmailAddressedRequest {
     @NotBlank(message = "Email is required")
     @Email(message = "Please provide a valid email address")
     private String email;
@@ -2,11 +2,14 @@ package com.anterka.bjyotish.entities;
 
 import com.anterka.bjyotish.constants.enums.UserRoleEnum;
 import com.anterka.bjyotish.constants.enums.UserStatusEnum;
+import com.anterka.bjyotish.entities.listener.BjyotishUserStatusListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.hibernate.annotations.JdbcType;
 import org.hibernate.dialect.PostgreSQLEnumJdbcType;
 import org.springframework.security.core.GrantedAuthority;
@@ -27,6 +30,7 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "bjyotish_users")
+@EntityListeners(BjyotishUserStatusListener.class)
 public class BjyotishUser implements UserDetails, Serializable {
 
     @Serial
@@ -68,6 +72,14 @@ public class BjyotishUser implements UserDetails, Serializable {
     @Builder.Default
     private UserStatusEnum status = UserStatusEnum.PENDING_VERIFICATION;
 
+    /**
+     * status as last read from or written to the database, tells a status change apart on update
+     */
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient UserStatusEnum persistedStatus;
+
 //    @Column(name = "profile_image_url")
 //    private String profileImageUrl;
 
@@ -165,6 +177,12 @@ public class BjyotishUser implements UserDetails, Serializable {
         updatedAt = Instant.now();
     }
 
+    @PostLoad
+    @PostPersist
+    protected void rememberPersistedStatus() {
+        persistedStatus = status;
+    }
+
     public String getFullName() {
         return firstName + " " + lastName;
     }
@@ -0,0 +1,69 @@
+package com.anterka.bjyotish.entities;
+
+// ==============================================
+// EMAIL OUTBOX ENTITY
+// ==============================================
+
+import com.anterka.bjyotish.constants.enums.EmailOutboxStatusEnum;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "email_outbox")
+public class EmailOutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_outbox_sequence_generator")
+    @Column(name = "id")
+    @SequenceGenerator(name = "email_outbox_sequence_generator", sequenceName = "seq_email_outbox_id", allocationSize = 1)
+    private Long id;
+
+    @Column(name = "recipient", nullable = false)
+    private String recipient;
+
+    @Column(name = "subject", nullable = false)
+    private String subject;
+
+    /**
+     * cleared once the mail is sent, it may hold an OTP or a password reset link
+     */
+    @Column(name = "body", columnDefinition = "TEXT")
+    private String body;
+
+    @Builder.Default
+    @Column(name = "is_html", nullable = false)
+    private Boolean isHtml = false;
+
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private EmailOutboxStatusEnum status = EmailOutboxStatusEnum.PENDING;
+
+    @Builder.Default
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "sent_at")
+    private Instant sentAt;
+}
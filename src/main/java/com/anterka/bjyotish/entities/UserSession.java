@@ -17,6 +17,7 @@ import org.hibernate.type.SqlTypes;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.Instant;
+import java.util.UUID;
 
 @Data
 @Entity
@@ -38,11 +39,23 @@ public class UserSession implements Serializable {
     @Column(name = "bjyotish_user_id", nullable = false)
     private Long bjyotishUserId;
 
-    @Column(name = "session_token", nullable = false, unique = true)
-    private String sessionToken;
+    /**
+     * generated by the application, stays the same across the refresh token rotations
+     */
+    @Column(name = "session_id", nullable = false, unique = true, updatable = false)
+    private UUID sessionId;
 
-    @Column(name = "refresh_token", unique = true)
-    private String refreshToken;
+    /**
+     * [jti] of the access token last issued for the session, the token itself is not stored
+     */
+    @Column(name = "access_token_id")
+    private UUID accessTokenId;
+
+    /**
+     * SHA-256 digest of the refresh token
+     */
+    @Column(name = "refresh_token_hash", nullable = false)
+    private byte[] refreshTokenHash;
 
     @Column(name = "expires_at", nullable = false)
     private Instant expiresAt;
@@ -153,7 +166,7 @@ public class UserSession implements Serializable {
     }
 
     public boolean hasRefreshToken() {
-        return refreshToken != null && !refreshToken.trim().isEmpty();
+        return refreshTokenHash != null && refreshTokenHash.length > 0;
     }
 
     public boolean hasUserAgent() {
@@ -0,0 +1,44 @@
+package com.anterka.bjyotish.entities.listener;
+
+import com.anterka.bjyotish.entities.BjyotishUser;
+import com.anterka.bjyotish.service.redis.TokenEpochService;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The access tokens carry the status of the user as a signed claim, so a status change (suspension, deactivation ...)
+ * bumps the revocation epoch of the user once committed, the tokens issued with the former status stop working at once
+ */
+@Component
+@RequiredArgsConstructor
+public class BjyotishUserStatusListener {
+
+    private static final Logger log = LoggerFactory.getLogger(BjyotishUserStatusListener.class);
+
+    private final TokenEpochService tokenEpochService;
+
+    @PostUpdate
+    public void onUpdate(BjyotishUser user) {
+        if (user.getPersistedStatus() == null || user.getPersistedStatus() == user.getStatus()) {
+            return;
+        }
+        log.info("Status of user {} changed from {} to {}, revoking the issued tokens", user.getId(), user.getPersistedStatus(), user.getStatus());
+        user.setPersistedStatus(user.getStatus());
+        Long userId = user.getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    tokenEpochService.incrementEpoch(userId);
+                }
+            });
+        } else {
+            tokenEpochService.incrementEpoch(userId);
+        }
+    }
+}
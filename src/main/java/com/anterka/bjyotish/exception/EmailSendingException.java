@@ -1,7 +0,0 @@
-package com.anterka.bjyotish.exception;
-
-public class EmailSendingException extends RuntimeException {
-    public EmailSendingException(String message) {
-        super(message);
-    }
-}
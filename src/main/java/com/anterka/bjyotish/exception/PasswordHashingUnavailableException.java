@@ -0,0 +1,16 @@
+package com.anterka.bjyotish.exception;
+
+import lombok.Getter;
+
+/**
+ * Raised when the password hashing executor is saturated, the request should be retried later
+ */
+@Getter
+public class PasswordHashingUnavailableException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public PasswordHashingUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
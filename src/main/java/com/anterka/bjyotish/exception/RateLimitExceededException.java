@@ -0,0 +1,14 @@
+package com.anterka.bjyotish.exception;
+
+import com.anterka.bjyotish.service.ratelimit.RateLimitDecision;
+import lombok.Getter;
+
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+    private final RateLimitDecision decision;
+
+    public RateLimitExceededException(String message, RateLimitDecision decision) {
+        super(message);
+        this.decision = decision;
+    }
+}
@@ -1,6 +1,7 @@
 package com.anterka.bjyotish.scheduler;
 
-import com.anterka.bjyotish.service.RefreshTokenService;
+import com.anterka.bjyotish.service.email.EmailOutboxWorker;
+import com.anterka.bjyotish.service.session.SessionPurgeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -13,19 +14,33 @@ import org.springframework.stereotype.Component;
 @ConditionalOnProperty(name = "jwt.security.cleanup.enabled", havingValue = "true", matchIfMissing = true)
 public class TokenCleanupScheduler {
 
-    private final RefreshTokenService refreshTokenService;
+    private final SessionPurgeService sessionPurgeService;
+    private final EmailOutboxWorker emailOutboxWorker;
 
     /**
-     * Runs daily at 2 AM to clean up expired refresh tokens
+     * Runs daily at 2 AM (by default) to purge the expired sessions in batches, on a single node
      */
-    @Scheduled(cron = "0 0 2 * * ?")
+    @Scheduled(cron = "${jwt.security.cleanup.cron:0 0 2 * * ?}")
     public void cleanupExpiredTokens() {
         log.info("Starting cleanup of expired refresh tokens");
         try {
-            refreshTokenService.cleanupExpiredTokens();
-            log.info("Successfully completed cleanup of expired refresh tokens");
+            if (sessionPurgeService.purgeExpiredSessions() >= 0) {
+                log.info("Successfully completed cleanup of expired refresh tokens");
+            }
         } catch (Exception e) {
             log.error("Error occurred during token cleanup", e);
         }
     }
+
+    /**
+     * Runs daily at 2:30 AM (by default) to purge the sent and dead mails past their retention from the outbox
+     */
+    @Scheduled(cron = "${email.outbox.retention.cron:0 30 2 * * ?}")
+    public void cleanupFinishedEmails() {
+        try {
+            emailOutboxWorker.purgeFinishedMessages();
+        } catch (Exception e) {
+            log.error("Error occurred during email outbox cleanup", e);
+        }
+    }
 }
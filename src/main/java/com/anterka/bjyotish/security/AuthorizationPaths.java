@@ -12,6 +12,8 @@ public class AuthorizationPaths {
             ApiPaths.API_V1_BASE+ApiPaths.VALIDATE_RESET_TOKEN,
             ApiPaths.API_V1_BASE+ApiPaths.RESET_PASSWORD,
             ApiPaths.API_V1_BASE+ApiPaths.RESEND_OTP,
+            ApiPaths.JWKS,
+            "/actuator/health",
             "/api/v1/testredis"
     };
 }
@@ -0,0 +1,152 @@
+package com.anterka.bjyotish.security;
+
+import com.anterka.bjyotish.exception.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the CPU heavy BCrypt work on a dedicated, bounded executor so that at most [threads] hashes run at once,
+ * whatever the number of servlet threads.
+ * <ul>
+ *     <li>the servlet thread still waits for the result, the executor caps the CPU spent on BCrypt, not the Tomcat threads</li>
+ *     <li>a running BCrypt can not be interrupted, a hash that timed out keeps its hashing thread until it completes,
+ *     so the executor size is the real concurrency cap and the timeout only bounds the wait of the caller</li>
+ *     <li>the hashing time is measured, a task whose estimated wait in the queue already exceeds the timeout is
+ *     rejected on submit instead of being queued only to time out</li>
+ * </ul>
+ * A rejected caller fails fast with [PasswordHashingUnavailableException] (HTTP 503 with Retry-After), so a login
+ * storm sheds load instead of piling up on the Tomcat threads.
+ */
+public class OffloadingPasswordEncoder implements PasswordEncoder, DisposableBean, MeterBinder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor hashingExecutor;
+    private final int threads;
+    private final long timeoutMillis;
+    private final long retryAfterSeconds;
+
+    /**
+     * moving average of the hashing time, 0 until the first hash completed
+     */
+    private volatile long averageHashNanos;
+
+    /**
+     * @param threads       CPU sized number of hashing threads
+     * @param queueCapacity maximum number of hashing tasks waiting for a thread, beyond it the callers are rejected
+     * @param timeoutMillis maximum wait of the caller, also bounds the estimated queueing time of an accepted task
+     */
+    public OffloadingPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity,
+                                     long timeoutMillis, long retryAfterSeconds) {
+        this.delegate = delegate;
+        this.threads = threads;
+        this.timeoutMillis = timeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.hashingExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * cheap check on the hash prefix, does not need the executor
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public long getAverageHashMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(averageHashNanos);
+    }
+
+    public int getQueueDepth() {
+        return hashingExecutor.getQueue().size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bjyotish.password.hashing.queue.depth", this, OffloadingPasswordEncoder::getQueueDepth)
+                .description("Password hashing tasks waiting for a hashing thread")
+                .register(registry);
+        Gauge.builder("bjyotish.password.hashing.active", hashingExecutor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing tasks currently running")
+                .register(registry);
+        Gauge.builder("bjyotish.password.hashing.average.millis", this, OffloadingPasswordEncoder::getAverageHashMillis)
+                .description("Moving average of the password hashing time")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        hashingExecutor.shutdown();
+    }
+
+    private <T> T execute(Callable<T> task) {
+        if (estimatedCompletionNanos() > TimeUnit.MILLISECONDS.toNanos(timeoutMillis)) {
+            throw new PasswordHashingUnavailableException("Too many concurrent password verifications, please retry later", retryAfterSeconds);
+        }
+        Future<T> future;
+        try {
+            future = hashingExecutor.submit(() -> timed(task));
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingUnavailableException("Too many concurrent password verifications, please retry later", retryAfterSeconds);
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // BCrypt ignores the interrupt, only a task still waiting in the queue can be dropped
+            future.cancel(false);
+            hashingExecutor.remove((Runnable) future);
+            throw new PasswordHashingUnavailableException("Password verification timed out, please retry later", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /**
+     * upper bound of the time until a task submitted now completes : the running and the queued tasks go
+     * [threads] at a time ahead of it, the running ones counted as if they just started
+     */
+    private long estimatedCompletionNanos() {
+        int ahead = hashingExecutor.getActiveCount() + hashingExecutor.getQueue().size();
+        return (ahead / threads + 1) * averageHashNanos;
+    }
+
+    private <T> T timed(Callable<T> task) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return task.call();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            long average = averageHashNanos;
+            averageHashNanos = average == 0 ? elapsed : average + (elapsed - average) / 8;
+        }
+    }
+}
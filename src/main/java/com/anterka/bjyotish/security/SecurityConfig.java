@@ -1,11 +1,12 @@
 package com.anterka.bjyotish.security;
 
-import com.anterka.bjyotish.controller.constants.ApiPaths;
 import com.anterka.bjyotish.security.jwt.AuthEntryPointJwt;
 import com.anterka.bjyotish.security.jwt.AuthTokenFilter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -23,12 +24,38 @@ public class SecurityConfig {
 
     private final AuthTokenFilter authTokenFilter;
     private final AuthenticationManager authenticationManager;
+    private final SkipAuthorizationMatcher skipAuthorizationMatcher;
+
+    /**
+     * The metrics are only served without a token on [management.server.port], which is meant to be reachable
+     * by the scrapers only. On the public port every actuator endpoint but [/actuator/health] is denied, also when
+     * [management.server.port] is not set and the actuator shares the public port.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain managementSecurityFilterChain(HttpSecurity httpSecurity,
+                                                             @Value("${management.server.port:-1}") int managementPort) throws Exception {
+        return httpSecurity
+                .securityMatcher(request -> managementPort > 0 && request.getLocalPort() == managementPort)
+                .csrf(AbstractHttpConfigurer::disable)
+                .authorizeHttpRequests(authorizeRequests -> authorizeRequests
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                        .anyRequest().denyAll()
+                )
+                .sessionManagement(session -> session
+                        .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                )
+                .build();
+    }
+
     @Bean
+    @Order(2)
     public SecurityFilterChain securityFilterChain(HttpSecurity httpSecurity) throws Exception {
         return httpSecurity
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authorizeRequests -> authorizeRequests
-                        .requestMatchers(AuthorizationPaths.SKIP_AUTHORIZATION_REQUESTS).permitAll()
+                        .requestMatchers(skipAuthorizationMatcher).permitAll()
+                        .requestMatchers("/actuator/**").denyAll()
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
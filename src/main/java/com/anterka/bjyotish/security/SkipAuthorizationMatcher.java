@@ -0,0 +1,146 @@
+package com.anterka.bjyotish.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Route table of the paths that skip the authorization, compiled once at startup from
+ * [AuthorizationPaths.SKIP_AUTHORIZATION_REQUESTS] and shared by the [SecurityConfig] and the [AuthTokenFilter].
+ *
+ * <ul>
+ *     <li>plain paths are kept in a hash set</li>
+ *     <li>[/prefix/**] patterns are kept in a segment trie, matching the prefix itself and everything below it</li>
+ *     <li>any other pattern ([*], [{id}] ...) falls back to a precompiled [PathPattern]</li>
+ * </ul>
+ * The lookup of the plain and prefix paths does not allocate, it only walks the segments of the request path.
+ */
+@Component
+public class SkipAuthorizationMatcher implements RequestMatcher {
+
+    private static final String CATCH_ALL_SUFFIX = "/**";
+
+    private final Set<String> exactPaths = new HashSet<>();
+    private final TrieNode prefixRoot = new TrieNode("");
+    private final List<PathPattern> patterns = new ArrayList<>();
+
+    public SkipAuthorizationMatcher() {
+        this(AuthorizationPaths.SKIP_AUTHORIZATION_REQUESTS);
+    }
+
+    SkipAuthorizationMatcher(String... paths) {
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        for (String path : paths) {
+            String prefix = path.endsWith(CATCH_ALL_SUFFIX) ? path.substring(0, path.length() - CATCH_ALL_SUFFIX.length()) : null;
+            if (prefix != null && !hasWildcard(prefix)) {
+                addPrefix(prefix);
+            } else if (!hasWildcard(path)) {
+                exactPaths.add(path);
+            } else {
+                patterns.add(parser.parse(path));
+            }
+        }
+    }
+
+    @Override
+    public boolean matches(HttpServletRequest request) {
+        String path = request.getServletPath();
+        if (request.getPathInfo() != null) {
+            path = path + request.getPathInfo();
+        }
+        return matches(path);
+    }
+
+    public boolean matches(String path) {
+        if (exactPaths.contains(path) || matchesPrefix(path)) {
+            return true;
+        }
+        if (patterns.isEmpty()) {
+            return false;
+        }
+        PathContainer pathContainer = PathContainer.parsePath(path);
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(pathContainer)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesPrefix(String path) {
+        TrieNode node = prefixRoot;
+        if (node.catchAll) {
+            return true;
+        }
+        int start = path.startsWith("/") ? 1 : 0;
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            node = node.child(path, start, end);
+            if (node == null) {
+                return false;
+            }
+            if (node.catchAll) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private void addPrefix(String prefix) {
+        TrieNode node = prefixRoot;
+        for (String segment : prefix.split("/")) {
+            if (!segment.isEmpty()) {
+                node = node.getOrAddChild(segment);
+            }
+        }
+        node.catchAll = true;
+    }
+
+    private boolean hasWildcard(String path) {
+        return path.indexOf('*') >= 0 || path.indexOf('?') >= 0 || path.indexOf('{') >= 0;
+    }
+
+    private static final class TrieNode {
+        private final String segment;
+        private TrieNode[] children = new TrieNode[0];
+        private boolean catchAll;
+
+        private TrieNode(String segment) {
+            this.segment = segment;
+        }
+
+        private TrieNode child(String path, int start, int end) {
+            int length = end - start;
+            for (TrieNode child : children) {
+                if (child.segment.length() == length && path.regionMatches(start, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        private TrieNode getOrAddChild(String segment) {
+            TrieNode existing = child(segment, 0, segment.length());
+            if (existing != null) {
+                return existing;
+            }
+            TrieNode[] grown = new TrieNode[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, children.length);
+            grown[children.length] = new TrieNode(segment);
+            children = grown;
+            return grown[children.length - 1];
+        }
+    }
+}
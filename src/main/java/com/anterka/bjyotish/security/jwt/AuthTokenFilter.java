@@ -1,8 +1,11 @@
 package com.anterka.bjyotish.security.jwt;
 
-import com.anterka.bjyotish.security.AuthorizationPaths;
-import com.anterka.bjyotish.security.SecurityConfig;
+import com.anterka.bjyotish.security.SkipAuthorizationMatcher;
 import com.anterka.bjyotish.service.BjyotishUserService;
+import com.anterka.bjyotish.service.redis.AccessTokenDenylistService;
+import com.anterka.bjyotish.service.redis.TokenEpochService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,6 +13,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -19,24 +23,27 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Arrays;
 
 @Component
 @RequiredArgsConstructor
 public class AuthTokenFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
+    private final VerifiedTokenCache verifiedTokenCache;
     private final BjyotishUserService bjyotishUserService;
+    private final TokenEpochService tokenEpochService;
+    private final AccessTokenDenylistService accessTokenDenylistService;
+    private final SkipAuthorizationMatcher skipAuthorizationMatcher;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${jwt.security.stateless-verification.enabled:true}")
+    private boolean statelessVerificationEnabled;
 
     private final static Logger log = LoggerFactory.getLogger(AuthTokenFilter.class);
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
-        String path = request.getServletPath();
-        if (log.isDebugEnabled()) {
-            log.debug("Checking if path {} should be filtered", path);
-        }
-        return Arrays.asList(AuthorizationPaths.SKIP_AUTHORIZATION_REQUESTS).contains(path);
+        return skipAuthorizationMatcher.matches(request);
     }
     /**
      * @param request
@@ -47,29 +54,70 @@ public class AuthTokenFilter extends OncePerRequestFilter {
      */
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        log.info("Processing request inside doFilterInternal : {}", request.getRequestURI());
+        if (log.isDebugEnabled()) {
+            log.debug("Processing request inside doFilterInternal : {}", request.getRequestURI());
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "anonymous";
         try {
             String jwt = getJwtFromRequest(request);
 
             if (StringUtils.hasText(jwt)) {
-                String email = jwtUtils.extractUserName(jwt);
-                UserDetails userDetails = bjyotishUserService.loadUserByUsername(email);
-                if(Boolean.TRUE.equals(jwtUtils.isTokenValid(jwt, userDetails))) {
-                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities()
-                    );
+                outcome = "rejected";
+                ParsedToken token = verifiedTokenCache.getOrVerify(jwt, jwtUtils);
+                UsernamePasswordAuthenticationToken authentication = null;
+                if (accessTokenDenylistService.isRevoked(token.getTokenId())) {
+                    log.debug("Token rejected as it was revoked : {}", token.getTokenId());
+                } else {
+                    authentication = statelessVerificationEnabled && token.hasPrincipalClaims()
+                            ? authenticateFromClaims(token)
+                            : authenticateFromUserDetails(token);
+                }
+                if (authentication != null) {
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
                     SecurityContextHolder.getContext().setAuthentication(authentication);
+                    outcome = "authenticated";
                 }
             }
         } catch (Exception ex) {
+            outcome = "error";
             log.error("Could not set user authentication in security context", ex);
         }
+        sample.stop(Timer.builder("bjyotish.auth.filter")
+                .description("Latency of the access token verification in the filter chain")
+                .tag("outcome", outcome)
+                .register(meterRegistry));
 
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Stateless path: the principal is rebuilt from the signed claims, only the revocation epoch is checked
+     */
+    private UsernamePasswordAuthenticationToken authenticateFromClaims(ParsedToken token) {
+        JwtUserPrincipal principal = token.toPrincipal();
+        if (!principal.isAllowed()) {
+            log.debug("Token rejected for user {} with status {}", principal.userId(), principal.status());
+            return null;
+        }
+        if (token.getTokenEpoch() < tokenEpochService.currentEpoch(principal.userId())) {
+            log.debug("Token rejected for user {} as it was issued before the current revocation epoch", principal.userId());
+            return null;
+        }
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    /**
+     * Legacy path for the tokens minted without principal claims, loads the user from the database
+     */
+    private UsernamePasswordAuthenticationToken authenticateFromUserDetails(ParsedToken token) {
+        UserDetails userDetails = bjyotishUserService.loadUserByUsername(token.getSubject());
+        if (!jwtUtils.isTokenValid(token, userDetails)) {
+            return null;
+        }
+        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
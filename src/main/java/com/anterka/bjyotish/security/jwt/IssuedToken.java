@@ -0,0 +1,10 @@
+package com.anterka.bjyotish.security.jwt;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Freshly minted access token along with its [jti] and [exp], so the issuer does not have to parse it back
+ */
+public record IssuedToken(String token, UUID tokenId, Instant expiresAt) {
+}
@@ -0,0 +1,173 @@
+package com.anterka.bjyotish.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.math.BigInteger;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.*;
+
+/**
+ * Holds the keys used to sign and verify the access tokens.
+ *
+ * <p>With [HS256] (default) a single shared secret [jwt.security.secret-key] is used, as before.
+ * With [ES256] the tokens are signed with the private key of the active [kid] and every token carries
+ * the [kid] in its header, the public keys of all the configured ids are served on the JWKS endpoint so
+ * that gateways and other services can verify the tokens without holding any secret.</p>
+ *
+ * <p>Rotation without downtime:
+ * <ol>
+ *     <li>add the new key id to [jwt.security.signing.key-ids] and roll it out, nodes verify with it but still sign with the old one</li>
+ *     <li>switch [jwt.security.signing.active-kid] to the new id and roll it out</li>
+ *     <li>remove the old id once the longest lived token signed with it has expired</li>
+ * </ol></p>
+ */
+@Component
+public class JwtKeyRing extends SigningKeyResolverAdapter {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+    private static final String KEY_PROPERTY_PREFIX = "jwt.security.signing.keys.";
+
+    @Getter
+    private final SignatureAlgorithm signatureAlgorithm;
+    @Getter
+    private final String activeKid;
+    @Getter
+    private final Key signingKey;
+
+    /**
+     * shared secret, still accepted for the tokens minted without a [kid] header while migrating to ES256
+     */
+    private final Key hmacKey;
+    private final Map<String, PublicKey> verificationKeys;
+
+    public JwtKeyRing(Environment env) {
+        this.signatureAlgorithm = SignatureAlgorithm.forName(env.getProperty("jwt.security.signing.algorithm", "HS256"));
+        this.hmacKey = initializeHmacKey(env);
+
+        if (signatureAlgorithm == SignatureAlgorithm.HS256) {
+            if (hmacKey == null) {
+                throw new IllegalStateException("Property [jwt.security.secret-key] is required for HS256 token signing");
+            }
+            this.activeKid = null;
+            this.signingKey = hmacKey;
+            this.verificationKeys = Map.of();
+        } else if (signatureAlgorithm == SignatureAlgorithm.ES256) {
+            Map<String, PublicKey> keys = new LinkedHashMap<>();
+            String[] keyIds = StringUtils.commaDelimitedListToStringArray(env.getProperty("jwt.security.signing.key-ids", ""));
+            for (String kid : keyIds) {
+                keys.put(kid.trim(), readPublicKey(env.getRequiredProperty(KEY_PROPERTY_PREFIX + kid.trim() + ".public-key")));
+            }
+            if (keys.isEmpty()) {
+                // an ephemeral key would not verify on the other nodes nor survive a restart
+                throw new IllegalStateException("Property [jwt.security.signing.key-ids] is required for ES256 token signing");
+            }
+            this.activeKid = env.getRequiredProperty("jwt.security.signing.active-kid");
+            if (!keys.containsKey(activeKid)) {
+                throw new IllegalStateException("Active kid [" + activeKid + "] is not part of [jwt.security.signing.key-ids]");
+            }
+            this.signingKey = readPrivateKey(env.getRequiredProperty(KEY_PROPERTY_PREFIX + activeKid + ".private-key"));
+            this.verificationKeys = Collections.unmodifiableMap(keys);
+        } else {
+            throw new IllegalStateException("Unsupported token signing algorithm: " + signatureAlgorithm);
+        }
+        log.info("Initialized the token key ring with algorithm [{}] and active kid [{}]", signatureAlgorithm, activeKid);
+    }
+
+    /**
+     * Resolves the verification key by the [kid] header, tokens without [kid] are verified with the shared secret
+     */
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        String kid = header.getKeyId();
+        if (kid == null) {
+            if (hmacKey == null) {
+                throw new SignatureException("Tokens without a key id are no longer accepted");
+            }
+            return hmacKey;
+        }
+        PublicKey key = verificationKeys.get(kid);
+        if (key == null) {
+            throw new SignatureException("Unknown token key id: " + kid);
+        }
+        return key;
+    }
+
+    /**
+     * @return the public keys of the ring as a JWK set, empty for the symmetric HS256 mode
+     */
+    public Map<String, Object> getPublicJwks() {
+        List<Map<String, Object>> jwks = new ArrayList<>();
+        verificationKeys.forEach((kid, key) -> {
+            ECPublicKey ecKey = (ECPublicKey) key;
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("kid", kid);
+            jwk.put("use", "sig");
+            jwk.put("alg", SignatureAlgorithm.ES256.getValue());
+            jwk.put("x", toBase64UrlCoordinate(ecKey.getW().getAffineX()));
+            jwk.put("y", toBase64UrlCoordinate(ecKey.getW().getAffineY()));
+            jwks.add(jwk);
+        });
+        return Map.of("keys", jwks);
+    }
+
+    /**
+     * encodes the curve coordinate as the unsigned, fixed 32 bytes big-endian value required by RFC 7518
+     */
+    private String toBase64UrlCoordinate(BigInteger coordinate) {
+        byte[] bytes = coordinate.toByteArray();
+        byte[] fixed = new byte[32];
+        int length = Math.min(bytes.length, fixed.length);
+        System.arraycopy(bytes, bytes.length - length, fixed, fixed.length - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fixed);
+    }
+
+    private Key initializeHmacKey(Environment env) {
+        final String secretKey = env.getProperty("jwt.security.secret-key");
+        if (!StringUtils.hasText(secretKey)) {
+            return null;
+        }
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+    }
+
+    /**
+     * @param base64Key Base64 encoded X.509 (SubjectPublicKeyInfo) DER key
+     */
+    private PublicKey readPublicKey(String base64Key) {
+        try {
+            return KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(Decoders.BASE64.decode(base64Key)));
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid EC public key configured for token verification", e);
+        }
+    }
+
+    /**
+     * @param base64Key Base64 encoded PKCS#8 DER key
+     */
+    private PrivateKey readPrivateKey(String base64Key) {
+        try {
+            return KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(Decoders.BASE64.decode(base64Key)));
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid EC private key configured for token signing", e);
+        }
+    }
+}
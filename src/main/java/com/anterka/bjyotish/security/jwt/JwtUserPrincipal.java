@@ -0,0 +1,34 @@
+package com.anterka.bjyotish.security.jwt;
+
+import com.anterka.bjyotish.constants.enums.UserRoleEnum;
+import com.anterka.bjyotish.constants.enums.UserStatusEnum;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lightweight principal built purely from the signed claims of an access token,
+ * so that authenticated requests do not need to load the [BjyotishUser] from the database
+ */
+public record JwtUserPrincipal(Long userId, String email, UserRoleEnum role, UserStatusEnum status)
+        implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    /**
+     * mirrors the [BjyotishUser#isEnabled] and [BjyotishUser#isAccountNonLocked] checks
+     */
+    public boolean isAllowed() {
+        return status == UserStatusEnum.ACTIVE || status == UserStatusEnum.PENDING_VERIFICATION;
+    }
+}
@@ -1,34 +1,57 @@
 package com.anterka.bjyotish.security.jwt;
 
+import com.anterka.bjyotish.entities.BjyotishUser;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
 import lombok.Getter;
 import org.springframework.core.env.Environment;
 import org.springframework.lang.NonNull;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
-import java.security.Key;
+import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
 public class JwtUtils {
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_STATUS = "status";
+    public static final String CLAIM_TOKEN_EPOCH = "epoch";
+
+    /**
+     * Fetched once from the properties, default expiration time is [2] hours
+     */
     @Getter
-    private long jwtExpirationTimeInMillis = 1000 * 60 * 60 * 2; // 2 hours
-    private final Environment env;
+    private final long jwtExpirationTimeInMillis;
+    private final JwtKeyRing keyRing;
 
-    private final Key signingKey;
+    /**
+     * The parser is immutable and thread-safe, so it is built once and shared by all the requests
+     */
+    private final JwtParser jwtParser;
 
-    public JwtUtils(Environment env) {
-        this.env = env;
-        this.signingKey = initializeSigningKey();
+    public JwtUtils(Environment env, JwtKeyRing keyRing) {
+        this.keyRing = keyRing;
+        this.jwtParser = Jwts.parserBuilder().setSigningKeyResolver(keyRing).build();
+        int expirationTimeInHours = Integer.parseInt(env.getProperty("jwt.security.secret-key.expiration.time.in-hours", "2"));
+        this.jwtExpirationTimeInMillis = 1000L * 60 * 60 * expirationTimeInHours;
+    }
+
+    /**
+     * Verifies the signature and the expiration of the token exactly once
+     * @return the [ParsedToken] exposing the subject, expiry and custom claims
+     */
+    public ParsedToken parseToken(String jwtToken) {
+        return new ParsedToken(extractAllClaimsForToken(jwtToken));
     }
 
     /**
@@ -42,8 +65,14 @@ public class JwtUtils {
      * Validates the token w.r.t the [{@link UserDetails}] along with the expiration date
      */
     public Boolean isTokenValid(String token, UserDetails userDetails) {
-        final String userName = extractUserName(token);
-        return (userName.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return isTokenValid(parseToken(token), userDetails);
+    }
+
+    /**
+     * Validates an already parsed token w.r.t the [{@link UserDetails}] along with the expiration date
+     */
+    public boolean isTokenValid(ParsedToken token, UserDetails userDetails) {
+        return token.getSubject().equals(userDetails.getUsername()) && !token.isExpired();
     }
 
     /**
@@ -55,33 +84,44 @@ public class JwtUtils {
 
     /**
      * generates the token including the claims [RegisterClaims, PublicClaims, PrivateClaims]
-     * Fetches the expiration time in hours from the properties
-     * Default expiration time is [2] hours
      */
     public String generateJwtToken(Map<String, Object> claims, @NonNull String userPrincipal) {
-        int expirationTimeInHours = Integer.parseInt(env.getProperty("jwt.security.secret-key.expiration.time.in-hours", "2"));
-        jwtExpirationTimeInMillis = 1000L * 60 * 60 * expirationTimeInHours;
-        return Jwts.builder()
-                .setClaims(claims)
-                .setSubject(userPrincipal)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationTimeInMillis))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
-                .compact();
+        return issueJwtToken(claims, userPrincipal).token();
     }
 
     /**
-     * @return true if the token is not expired by reading the expiration from the claims
-     * */
-    private boolean isTokenExpired(String token) {
-        return extractExpirationDate(token).before(new Date());
+     * generates the token with the user id, role, status and the revocation epoch embedded as signed claims
+     * so that the token can be verified without loading the user from the database
+     * @return the token along with its [jti] and expiration, known here without parsing it back
+     */
+    public IssuedToken issueJwtToken(BjyotishUser user, long tokenEpoch) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, user.getId());
+        claims.put(CLAIM_ROLE, user.getRole().name());
+        claims.put(CLAIM_STATUS, user.getStatus().name());
+        claims.put(CLAIM_TOKEN_EPOCH, tokenEpoch);
+        return issueJwtToken(claims, user.getEmail());
     }
 
     /**
-     * extracts the expiration from the claims with the token
+     * every token gets a random [jti] so that it can be revoked individually
      */
-    private Date extractExpirationDate(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private IssuedToken issueJwtToken(Map<String, Object> claims, String userPrincipal) {
+        long now = System.currentTimeMillis();
+        UUID tokenId = UUID.randomUUID();
+        Date expiration = new Date(now + jwtExpirationTimeInMillis);
+        JwtBuilder builder = Jwts.builder()
+                .setClaims(claims)
+                .setSubject(userPrincipal)
+                .setId(tokenId.toString())
+                .setIssuedAt(new Date(now))
+                .setExpiration(expiration);
+        if (keyRing.getActiveKid() != null) {
+            builder.setHeaderParam(JwsHeader.KEY_ID, keyRing.getActiveKid());
+        }
+        String token = builder.signWith(keyRing.getSigningKey(), keyRing.getSignatureAlgorithm()).compact();
+        // [exp] is serialized in seconds
+        return new IssuedToken(token, tokenId, expiration.toInstant().truncatedTo(ChronoUnit.SECONDS));
     }
 
     /**
@@ -93,23 +133,9 @@ public class JwtUtils {
     }
 
     /**
-     * extract all claims associated with the token
+     * extract all claims associated with the token, verifying the signature and the expiration once
      */
     private Claims extractAllClaimsForToken(String jwtToken) {
-        return Jwts.parserBuilder().setSigningKey(getSignInKey()).build().parseClaimsJws(jwtToken).getBody();
-    }
-
-    /**
-     * reads the secret_key from the properties
-     * @return Key using [SH256 signature Algorithm]
-     * */
-    private Key getSignInKey() {
-        return signingKey;
-    }
-
-    private Key initializeSigningKey() {
-        final String secretKey = env.getProperty("jwt.security.secret-key");
-        byte[] signInKeyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(signInKeyBytes);
+        return jwtParser.parseClaimsJws(jwtToken).getBody();
     }
 }
@@ -0,0 +1,71 @@
+package com.anterka.bjyotish.security.jwt;
+
+import com.anterka.bjyotish.constants.enums.UserRoleEnum;
+import com.anterka.bjyotish.constants.enums.UserStatusEnum;
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+
+/**
+ * Result of a single signature verification of an access token.
+ * All the reads (subject, expiry, custom claims) are served from the already verified claims,
+ * so a token never has to be parsed or HMAC-verified twice within a request
+ */
+public final class ParsedToken {
+
+    private final Claims claims;
+
+    ParsedToken(Claims claims) {
+        this.claims = claims;
+    }
+
+    public String getSubject() {
+        return claims.getSubject();
+    }
+
+    /**
+     * @return the [jti] of the token, null for the tokens minted before the claim was introduced
+     */
+    public String getTokenId() {
+        return claims.getId();
+    }
+
+    public Instant getExpiresAt() {
+        return claims.getExpiration().toInstant();
+    }
+
+    public Instant getIssuedAt() {
+        return claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null;
+    }
+
+    public boolean isExpired() {
+        return getExpiresAt().isBefore(Instant.now());
+    }
+
+    public <T> T getClaim(String name, Class<T> type) {
+        return claims.get(name, type);
+    }
+
+    /**
+     * @return true if the token carries the principal claims minted by [JwtUtils#issueJwtToken(BjyotishUser, long)]
+     */
+    public boolean hasPrincipalClaims() {
+        return claims.get(JwtUtils.CLAIM_USER_ID) != null && claims.get(JwtUtils.CLAIM_ROLE) != null
+                && claims.get(JwtUtils.CLAIM_STATUS) != null && claims.get(JwtUtils.CLAIM_TOKEN_EPOCH) != null;
+    }
+
+    /**
+     * builds the principal from the signed claims without touching the database
+     */
+    public JwtUserPrincipal toPrincipal() {
+        return new JwtUserPrincipal(
+                claims.get(JwtUtils.CLAIM_USER_ID, Number.class).longValue(),
+                claims.getSubject(),
+                UserRoleEnum.valueOf(claims.get(JwtUtils.CLAIM_ROLE, String.class)),
+                UserStatusEnum.valueOf(claims.get(JwtUtils.CLAIM_STATUS, String.class)));
+    }
+
+    public long getTokenEpoch() {
+        return claims.get(JwtUtils.CLAIM_TOKEN_EPOCH, Number.class).longValue();
+    }
+}
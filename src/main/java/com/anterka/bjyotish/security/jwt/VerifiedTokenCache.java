@@ -0,0 +1,67 @@
+package com.anterka.bjyotish.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Size bounded, in-process cache of the already verified access tokens.
+ * Clients reuse the same access token until it expires, so the repeated requests skip both the
+ * signature verification and the claims deserialization. Every entry lives until the [exp] of its token.
+ */
+@Component
+public class VerifiedTokenCache implements MeterBinder {
+
+    private final Cache<String, ParsedToken> cache;
+
+    public VerifiedTokenCache(@Value("${jwt.security.verified-token-cache.max-size:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return the cached [ParsedToken] or verifies the token through [JwtUtils#parseToken] and caches the result
+     */
+    public ParsedToken getOrVerify(String jwtToken, JwtUtils jwtUtils) {
+        return cache.get(jwtToken, jwtUtils::parseToken);
+    }
+
+    /**
+     * publishes the hit/miss/eviction counters as [cache_gets_total{cache="verified_tokens"}] and co
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "verified_tokens");
+    }
+
+    /**
+     * Expires every entry exactly at the expiration of its token
+     */
+    private static class TokenExpiry implements Expiry<String, ParsedToken> {
+        @Override
+        public long expireAfterCreate(String key, ParsedToken token, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), token.getExpiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, ParsedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, ParsedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
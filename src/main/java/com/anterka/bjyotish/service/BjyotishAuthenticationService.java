@@ -9,31 +9,30 @@ import com.anterka.bjyotish.dto.users.response.ResendOtpResponse;
 import com.anterka.bjyotish.dto.users.response.UserLoginResponse;
 import com.anterka.bjyotish.dto.users.response.UserRegistrationResponse;
 import com.anterka.bjyotish.entities.BjyotishUser;
-import com.anterka.bjyotish.entities.UserSession;
 import com.anterka.bjyotish.exception.CredentialValidationException;
 import com.anterka.bjyotish.exception.DataAlreadyExistsException;
 import com.anterka.bjyotish.exception.UserAuthenticationException;
 import com.anterka.bjyotish.exception.UserRegistrationException;
+import com.anterka.bjyotish.security.jwt.IssuedToken;
 import com.anterka.bjyotish.security.jwt.JwtUtils;
 import com.anterka.bjyotish.service.helper.RegistrationData;
 import com.anterka.bjyotish.service.redis.RegistrationCacheService;
+import com.anterka.bjyotish.service.redis.TokenEpochService;
 import com.anterka.bjyotish.service.strategy.UserRegistrationStrategy;
 import com.anterka.bjyotish.service.strategy.UserRegistrationStrategyFactory;
-import jakarta.mail.MessagingException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.LockedException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -44,9 +43,12 @@ public class BjyotishAuthenticationService {
     private final OtpService otpService;
     private final EmailService emailService;
     private final RegistrationCacheService registrationCacheService;
-    private final AuthenticationManager authenticationManager;
+    private final PasswordEncoder passwordEncoder;
+    private final MeterRegistry meterRegistry;
     private final JwtUtils jwtUtils;
     private final RefreshTokenService refreshTokenService;
+    private final TokenEpochService tokenEpochService;
+    private final TransactionTemplate transactionTemplate;
 
     private final UserRegistrationStrategyFactory registrationStrategyFactory;
 
@@ -57,28 +59,16 @@ public class BjyotishAuthenticationService {
     public UserRegistrationResponse registerUser(UserRegistrationRequest request, UserRoleEnum userRole) {
         validateUserData(request);
 
-        // Generate OTP for email verification
+        // Generate OTP for email verification and cache it with the registration data along with strategy info
         String otp = otpService.generateOtp();
-        long otpValiditySeconds = otpService.saveOtp(request.getEmail(), otp);
-
-        try {
-            // Async email sending
-            emailService.sendOTPMail(request.getEmail(), otp)
-                    .exceptionally(throwable -> {
-                        log.error("Failed to send OTP email: {}", throwable.getMessage());
-                        return null;
-                    });
-        } catch (MessagingException e) {
-            throw new UserRegistrationException("Failed to send OTP email: " + e.getMessage());
-        }
-
-        // Cache the registration data along with strategy info
         RegistrationData registrationData = RegistrationData.builder()
                 .userRegistrationRequest(request)
                 .userRole(userRole)
                 .build();
+        long otpValiditySeconds = registrationCacheService.saveRegistrationWithOtp(request.getEmail(), registrationData, otp);
 
-        registrationCacheService.saveRegistration(request.getEmail(), registrationData);
+        // Delivered by the outbox worker
+        emailService.sendOTPMail(request.getEmail(), otp);
 
         return UserRegistrationResponse.success(
                 null, // userId will be set after email verification
@@ -98,83 +88,85 @@ public class BjyotishAuthenticationService {
         return registerUser(request, UserRoleEnum.ASTROLOGER);
     }
 
-    @Transactional
+    /**
+     * Loads the user once and verifies the password on the hashing executor outside of any transaction, so that no
+     * database connection is held while BCrypt runs. The login is then recorded in a short transaction of its own,
+     * the access token and the session are created after it
+     */
     public UserLoginResponse authenticateUser(UserLoginRequest request, HttpServletRequest httpRequest){
-        Instant startTime1 = Instant.now();
-        // Fetch user first to avoid duplicate queries
+        Timer.Sample authenticationSample = Timer.start(meterRegistry);
         BjyotishUser bjyotishUser = bjyotishUserRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new UserAuthenticationException("User not found"));
-        try {
-            authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
-            );
-        }catch (BadCredentialsException ex) {
-            throw new CredentialValidationException("Invalid email or password for user: [" + request.getEmail() + "]");
-        } catch (LockedException ex) {
+        if (!bjyotishUser.isAccountNonLocked()) {
             throw new UserAuthenticationException("User with email: [" + request.getEmail() + "] is blocked, please contact the clos-auth");
-        } catch (Exception ex) {
-            throw new UserAuthenticationException("Exception occurred while authenticating the user: [" + request.getEmail() + "], Error: " + ex.getMessage());
         }
-        log.info("User authenticated successfully!!");
-        Instant endTime1 = Instant.now();
-        log.info("Authentication time: {} ms", endTime1.toEpochMilli() - startTime1.toEpochMilli());
-
-        Instant startTime2 = Instant.now();
+        if (!bjyotishUser.isEnabled()) {
+            throw new UserAuthenticationException("User with email: [" + request.getEmail() + "] is not active");
+        }
+        if (!passwordEncoder.matches(request.getPassword(), bjyotishUser.getPassword())) {
+            throw new CredentialValidationException("Invalid email or password for user: [" + request.getEmail() + "]");
+        }
+        // re-hash the password stored with a lower work factor, before the transaction is started
+        String upgradedPasswordHash = passwordEncoder.upgradeEncoding(bjyotishUser.getPassword())
+                ? passwordEncoder.encode(request.getPassword()) : null;
+        transactionTemplate.executeWithoutResult(status -> {
+            if (upgradedPasswordHash != null) {
+                bjyotishUserRepository.updatePasswordHash(bjyotishUser.getId(), upgradedPasswordHash);
+            }
+            bjyotishUserRepository.updateLastLoginAt(bjyotishUser.getId(), Instant.now());
+        });
+        authenticationSample.stop(loginStageTimer("authentication"));
 
-        CompletableFuture<String> jwtFuture = CompletableFuture.supplyAsync(() ->
-                jwtUtils.generateJwtToken(bjyotishUser.getEmail())
-        );
-        Instant expirationTime = Instant.ofEpochMilli(jwtUtils.getJwtExpirationTimeInMillis());
-        Instant endTime2 = Instant.now();
-        log.info("Jwt generation time: {} ms", endTime2.toEpochMilli() - startTime2.toEpochMilli());
+        Timer.Sample tokenSample = Timer.start(meterRegistry);
+        IssuedToken jwtToken = jwtUtils.issueJwtToken(bjyotishUser, tokenEpochService.currentEpoch(bjyotishUser.getId()));
+        tokenSample.stop(loginStageTimer("jwt_generation"));
 
         // Create user session with refresh token
-        Instant startTime3 = Instant.now();
-        CompletableFuture<UserSession> sessionFuture = jwtFuture.thenApplyAsync(jwt ->
-                refreshTokenService.createSession(bjyotishUser, jwt, httpRequest)
-        );
-
-        // Wait for both operations to complete
-        String jwtToken = jwtFuture.join();
-        UserSession userSession = sessionFuture.join();
-        Instant endTime3 = Instant.now();
-        log.info("User session creation time: {} ms", endTime3.toEpochMilli() - startTime3.toEpochMilli());
-        return UserLoginResponse.success(bjyotishUser,jwtToken,userSession.getRefreshToken(),expirationTime);
+        Timer.Sample sessionSample = Timer.start(meterRegistry);
+        String refreshToken = refreshTokenService.createSession(bjyotishUser, jwtToken, httpRequest);
+        sessionSample.stop(loginStageTimer("session_creation"));
+        return UserLoginResponse.success(bjyotishUser,jwtToken.token(),refreshToken,jwtToken.expiresAt());
     }
 
     @Transactional
     public CustomApiResponse verifyUserEmail(UserEmailVerificationRequest request) {
         log.info("Verifying user email: {}", request.getEmail());
 
-        registrationCacheService.getRegistration(request.getEmail())
-                .ifPresentOrElse(registrationData -> {
-                    String cachedOtp = otpService.getOtp(request.getEmail());
-                    if (cachedOtp == null || !cachedOtp.equals(request.getOtp())) {
-                        throw new UserRegistrationException("Invalid OTP for email: " + request.getEmail());
-                    } else {
-                        // Get the appropriate strategy
-                        UserRegistrationStrategy strategy = registrationStrategyFactory
-                                .getStrategy(registrationData.getUserRole());
+        RegistrationCacheService.VerifiedRegistration verifiedRegistration =
+                registrationCacheService.verifyOtpAndGetRegistration(request.getEmail(), request.getOtp());
+        OtpService.OtpVerification verification = verifiedRegistration.verification();
+        switch (verification.status()) {
+            case INVALID -> throw new UserRegistrationException("Invalid OTP for email: " + request.getEmail()
+                    + ", " + verification.remainingAttempts() + " attempts left");
+            case EXHAUSTED -> throw new UserRegistrationException("Too many invalid OTP attempts for email: "
+                    + request.getEmail() + ", please request a new OTP");
+            case NOT_FOUND -> throw new UserRegistrationException("OTP expired or already used for email: "
+                    + request.getEmail() + ", please request a new OTP");
+            case VERIFIED -> {
+                // the OTP is consumed at this point
+            }
+        }
+        RegistrationData registrationData = verifiedRegistration.registrationData()
+                .orElseThrow(() -> new UserRegistrationException("No registration found for email: " + request.getEmail()));
 
-                        // Create user using strategy
-                        BjyotishUser user = strategy.createUser(registrationData.getUserRegistrationRequest());
-                        user.setEmailVerified(true);
+        // Get the appropriate strategy
+        UserRegistrationStrategy strategy = registrationStrategyFactory
+                .getStrategy(registrationData.getUserRole());
 
-                        // Save user to database
-                        user = bjyotishUserRepository.save(user);
+        // Create user using strategy
+        BjyotishUser user = strategy.createUser(registrationData.getUserRegistrationRequest());
+        user.setEmailVerified(true);
 
-                        // Perform post-registration setup (create profiles, etc.)
-                        strategy.performPostRegistrationSetup(user, registrationData.getUserRegistrationRequest());
+        // Save user to database
+        user = bjyotishUserRepository.save(user);
 
-                        // Clean up cache
-                        registrationCacheService.deleteRegistration(request.getEmail());
-                        otpService.deleteOtp(request.getEmail());
+        // Perform post-registration setup (create profiles, etc.)
+        strategy.performPostRegistrationSetup(user, registrationData.getUserRegistrationRequest());
 
-                        log.info("User email verified successfully: {}", request.getEmail());
-                    }
-                }, () -> {
-                    throw new UserRegistrationException("No registration found for email: " + request.getEmail());
-                });
+        // Clean up cache, the OTP was already consumed
+        registrationCacheService.deleteRegistration(request.getEmail());
+
+        log.info("User email verified successfully: {}", request.getEmail());
 
         return CustomApiResponse.builder()
                 .status(ResponseStatusEnum.SUCCESS)
@@ -189,16 +181,8 @@ public class BjyotishAuthenticationService {
             String otp = otpService.generateOtp();
             otpService.saveOtp(request.getEmail(), otp);
 
-            try {
-                // Async email sending
-                emailService.sendOTPMail(request.getEmail(), otp)
-                        .exceptionally(throwable -> {
-                            log.error("Failed to send OTP email: {}", throwable.getMessage());
-                            return null;
-                        });
-            } catch (MessagingException e) {
-                throw new UserRegistrationException("Failed to send OTP email: " + e.getMessage());
-            }
+            // Delivered by the outbox worker
+            emailService.sendOTPMail(request.getEmail(), otp);
         } else {
             throw new UserRegistrationException("No registration found for email: " + request.getEmail());
         }
@@ -224,4 +208,11 @@ public class BjyotishAuthenticationService {
                     }
                 });
     }
-}
\ No newline at end of file
+
+    private Timer loginStageTimer(String stage) {
+        return Timer.builder("bjyotish.auth.login.stage")
+                .description("Latency of the login stages")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+}
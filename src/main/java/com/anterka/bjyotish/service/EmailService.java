@@ -1,63 +1,130 @@
 package com.anterka.bjyotish.service;
 
-import com.anterka.bjyotish.exception.EmailSendingException;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
+import com.anterka.bjyotish.dao.EmailOutboxRepository;
+import com.anterka.bjyotish.entities.EmailOutboxMessage;
+import com.anterka.bjyotish.service.email.template.EmailContentType;
+import com.anterka.bjyotish.service.email.template.EmailTemplateEngine;
+import com.anterka.bjyotish.service.email.template.RenderedEmail;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.mail.MailException;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.concurrent.CompletableFuture;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+/**
+ * Enqueues the mails into the [email_outbox] table, they are delivered by the [EmailOutboxWorker].
+ * Enqueuing is a single insert joining the transaction of the caller if any, so a mail is only sent when
+ * the change that triggered it was committed and the request thread never waits for SMTP.
+ * The subjects and bodies are rendered by the [EmailTemplateEngine].
+ */
 @Service
 @RequiredArgsConstructor
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmailTemplateEngine emailTemplateEngine;
     private static final Logger log = LoggerFactory.getLogger(EmailService.class);
 
-    @Async
-    public CompletableFuture<Void> sendOTPMail(String to, String otp) throws MessagingException {
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper messageHelper = new MimeMessageHelper(message, true);
-
-        messageHelper.setTo(to);
-        messageHelper.setSubject("OTP for Email Verification");
-        messageHelper.setText("Your OTP for email verification is: " + otp);
-
-        try {
-            mailSender.send(message);
-            log.info("Email sent successfully");
-        } catch (MailException e) {
-            log.error("Failed to send email: {}", e.getMessage());
-            throw new EmailSendingException("Failed to process email verification request");
-        }
+    private static final int BULK_INSERT_BATCH_SIZE = 1000;
+    private static final String BULK_INSERT_SQL =
+            "INSERT INTO email_outbox (recipient, subject, body, is_html, next_attempt_at, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String OTP_VERIFICATION_TEMPLATE = "otp_verification";
+    private static final String FORGOT_PASSWORD_TEMPLATE = "forgot_password";
+
+    public void sendOTPMail(String to, String otp) {
+        enqueue(to, emailTemplateEngine.render(OTP_VERIFICATION_TEMPLATE, null, Map.of("otp", otp)));
+    }
+
+    public void sendForgotPasswordLinkMail(String to, String link, long expiresIn) {
+        enqueue(to, emailTemplateEngine.render(FORGOT_PASSWORD_TEMPLATE, null,
+                Map.of("link", link, "expiresInMinutes", expiresIn)));
+    }
+
+    @Transactional
+    public void enqueue(String to, RenderedEmail email) {
+        enqueue(to, email.subject(), email.body(), email.html());
+    }
 
-        return CompletableFuture.completedFuture(null);
+    @Transactional
+    public void enqueue(String to, String subject, String body) {
+        enqueue(to, subject, body, false);
     }
 
-    public void sendForgotPasswordLinkMail(String to, String link, long expiresIn) throws MessagingException {
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper messageHelper = new MimeMessageHelper(message, true);
+    @Transactional
+    public void enqueue(String to, String subject, String body, boolean html) {
+        Instant now = Instant.now();
+        EmailOutboxMessage message = emailOutboxRepository.save(EmailOutboxMessage.builder()
+                .recipient(to)
+                .subject(subject)
+                .body(body)
+                .isHtml(html)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+        log.debug("Email {} enqueued", message.getId());
+    }
 
-        messageHelper.setTo(to);
-        messageHelper.setSubject("Close Auth Forgot Password Link");
-        messageHelper.setText("To reset your password, click the link below:\n\n" + link +
-                "\n\nThis link will expire in " + expiresIn + " minutes.");
+    /**
+     * enqueues one mail per recipient (daily horoscopes, subscription notices ...) with JDBC batches of
+     * [BULK_INSERT_BATCH_SIZE] rows, each batch being committed on its own so the recipients are streamed
+     * without holding them all in memory or in a single transaction
+     * @param bodyRenderer renders the body of a recipient
+     * @return the number of enqueued mails
+     */
+    public long enqueueBulk(Stream<String> recipients, String subject, Function<String, String> bodyRenderer, boolean html) {
+        return enqueueBulk(recipients, subject, recipient -> new RenderedEmail(subject, bodyRenderer.apply(recipient), html));
+    }
 
-        try {
-            mailSender.send(message);
-            log.info("Forgot password email sent successfully");
-        } catch (MailException e) {
-            log.error("Failed to send the forgot password email: {}", e.getMessage());
-            throw new EmailSendingException("Failed to process email verification request");
+    /**
+     * enqueues the template rendered for each recipient, see [enqueueBulk] above
+     * @param parametersOf the parameters of the template for a recipient
+     * @return the number of enqueued mails
+     */
+    public long enqueueBulk(Stream<String> recipients, String templateName, Locale locale, EmailContentType contentType,
+                            Function<String, Map<String, ?>> parametersOf) {
+        return enqueueBulk(recipients, templateName,
+                recipient -> emailTemplateEngine.render(templateName, locale, contentType, parametersOf.apply(recipient)));
+    }
+
+    private long enqueueBulk(Stream<String> recipients, String label, Function<String, RenderedEmail> renderer) {
+        List<Object[]> batch = new ArrayList<>(BULK_INSERT_BATCH_SIZE);
+        long enqueued = 0;
+        try (recipients) {
+            for (String recipient : (Iterable<String>) recipients::iterator) {
+                RenderedEmail email = renderer.apply(recipient);
+                Timestamp now = Timestamp.from(Instant.now());
+                batch.add(new Object[]{recipient, email.subject(), email.body(), email.html(), now, now});
+                if (batch.size() == BULK_INSERT_BATCH_SIZE) {
+                    enqueued += insertBatch(batch);
+                }
+            }
+            enqueued += insertBatch(batch);
         }
+        log.info("Enqueued {} bulk emails [{}]", enqueued, label);
+        return enqueued;
+    }
 
+    private int insertBatch(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(BULK_INSERT_SQL, batch));
+        int inserted = batch.size();
+        batch.clear();
+        return inserted;
     }
 }
@@ -1,38 +1,125 @@
 package com.anterka.bjyotish.service;
 
-import lombok.RequiredArgsConstructor;
+import com.anterka.bjyotish.service.redis.RedisLuaScript;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import redis.clients.jedis.AbstractTransaction;
 import redis.clients.jedis.JedisPooled;
 
+import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * One time passwords of the email verification, kept per email in the hash [otp:email] with the fields
+ * [otp], [attempts] (the remaining guesses) and [issued_at] (epoch seconds).
+ * An OTP is verified and consumed by a single Lua script, it is deleted on the first match or once the
+ * attempts are exhausted, so it can neither be reused nor brute forced.
+ */
 @Service
-@RequiredArgsConstructor
 public class OtpService {
     private final JedisPooled client;
+    private final int maxAttempts;
 
     private static final SecureRandom random = new SecureRandom();
     private static final int OTP_LENGTH = 6;
 
-    private static final String OTP_PREFIX = "otp_";
-    protected static final long OTP_VALIDITY_SECONDS = TimeUnit.SECONDS.toSeconds(600); // 10 minutes
+    private static final String OTP_PREFIX = "otp:";
+    public static final long OTP_VALIDITY_SECONDS = TimeUnit.SECONDS.toSeconds(600); // 10 minutes
+
+    /**
+     * KEYS : the OTP hash, optionally a key whose value is returned along with a successful verification
+     * ARGV : the submitted OTP
+     * returns {status, remaining attempts, value of KEYS[2]}, the status being 1 verified, 0 invalid,
+     * -1 not found and -2 exhausted. The OTP is compared in constant time, whatever the position of the first mismatch.
+     */
+    private static final RedisLuaScript VERIFY_AND_CONSUME = new RedisLuaScript("""
+            local stored = redis.call('HGET', KEYS[1], 'otp')
+            if not stored then
+                return {-1, 0}
+            end
+            local submitted = ARGV[1]
+            local diff = 0
+            if #stored ~= #submitted then
+                diff = 1
+            end
+            for i = 1, #stored do
+                diff = bit.bor(diff, bit.bxor(string.byte(stored, i), string.byte(submitted, i) or 0))
+            end
+            if diff == 0 then
+                redis.call('DEL', KEYS[1])
+                if KEYS[2] then
+                    return {1, 0, redis.call('GET', KEYS[2])}
+                end
+                return {1, 0}
+            end
+            local attempts = redis.call('HINCRBY', KEYS[1], 'attempts', -1)
+            if attempts <= 0 then
+                redis.call('DEL', KEYS[1])
+                return {-2, 0}
+            end
+            return {0, attempts}
+            """);
+
+    public OtpService(JedisPooled client, @Value("${otp.max-attempts:5}") int maxAttempts) {
+        this.client = client;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public static String otpKey(String email) {
+        return OTP_PREFIX + email;
+    }
 
     public long saveOtp(String email, String otp) {
-        String key = OTP_PREFIX + email;
-        client.setex(key, OTP_VALIDITY_SECONDS, otp);
+        try (AbstractTransaction transaction = client.multi()) {
+            saveOtp(transaction, email, otp);
+            transaction.exec();
+        }
         return OTP_VALIDITY_SECONDS;
     }
 
-    public String getOtp(String email) {
-        String key = OTP_PREFIX + email;
-        return client.get(key);
+    /**
+     * queues the replacement of the OTP of the email with a full attempt budget into [transaction]
+     */
+    public void saveOtp(AbstractTransaction transaction, String email, String otp) {
+        String key = otpKey(email);
+        transaction.del(key);
+        transaction.hset(key, Map.of(
+                "otp", otp,
+                "attempts", String.valueOf(maxAttempts),
+                "issued_at", String.valueOf(Instant.now().getEpochSecond())));
+        transaction.expire(key, OTP_VALIDITY_SECONDS);
+    }
+
+    public OtpVerification verifyAndConsume(String email, String otp) {
+        return verifyAndConsume(email, otp, null);
     }
 
-    public void deleteOtp(String email) {
-        String key = OTP_PREFIX + email;
-        client.del(key);
+    /**
+     * verifies the OTP and on success also reads [companionKey] in the same round trip
+     */
+    public OtpVerification verifyAndConsume(String email, String otp, byte[] companionKey) {
+        List<byte[]> keys = new ArrayList<>(2);
+        keys.add(otpKey(email).getBytes(StandardCharsets.UTF_8));
+        if (companionKey != null) {
+            keys.add(companionKey);
+        }
+        String submitted = otp != null ? otp : "";
+        List<?> result = (List<?>) VERIFY_AND_CONSUME.evalBinary(client, keys, List.of(submitted.getBytes(StandardCharsets.UTF_8)));
+        OtpVerificationStatus status = switch (((Long) result.get(0)).intValue()) {
+            case 1 -> OtpVerificationStatus.VERIFIED;
+            case 0 -> OtpVerificationStatus.INVALID;
+            case -2 -> OtpVerificationStatus.EXHAUSTED;
+            default -> OtpVerificationStatus.NOT_FOUND;
+        };
+        byte[] companionValue = result.size() > 2 ? (byte[]) result.get(2) : null;
+        return new OtpVerification(status, (Long) result.get(1), companionValue);
     }
+
     public String generateOtp() {
         StringBuilder otp = new StringBuilder(OTP_LENGTH);
         for (int i = 0; i < OTP_LENGTH; i++) {
@@ -40,4 +127,28 @@ public class OtpService {
         }
         return otp.toString();
     }
+
+    public enum OtpVerificationStatus {
+        VERIFIED,
+        INVALID,
+        /**
+         * the last attempt failed, the OTP was deleted
+         */
+        EXHAUSTED,
+        /**
+         * no OTP is pending, it expired or was already used
+         */
+        NOT_FOUND
+    }
+
+    /**
+     * @param remainingAttempts the guesses left after an [INVALID] attempt
+     * @param companionValue    the value of the companion key read along with a [VERIFIED] attempt
+     */
+    public record OtpVerification(OtpVerificationStatus status, long remainingAttempts, byte[] companionValue) {
+
+        public boolean isVerified() {
+            return status == OtpVerificationStatus.VERIFIED;
+        }
+    }
 }
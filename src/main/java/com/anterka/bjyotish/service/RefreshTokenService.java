@@ -1,29 +1,43 @@
 package com.anterka.bjyotish.service;
 
-import com.anterka.bjyotish.dao.UserSessionRepository;
+import com.anterka.bjyotish.dao.BjyotishUserRepository;
 import com.anterka.bjyotish.entities.BjyotishUser;
-import com.anterka.bjyotish.entities.UserSession;
+import com.anterka.bjyotish.security.jwt.IssuedToken;
 import com.anterka.bjyotish.security.jwt.JwtUtils;
+import com.anterka.bjyotish.service.helper.TokenDigest;
+import com.anterka.bjyotish.service.redis.AccessTokenDenylistService;
+import com.anterka.bjyotish.service.redis.TokenEpochService;
+import com.anterka.bjyotish.service.session.SessionRecord;
+import com.anterka.bjyotish.service.session.SessionStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Base64;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RefreshTokenService {
 
-    private final UserSessionRepository userSessionRepository;
+    private final BjyotishUserRepository bjyotishUserRepository;
+    private final SessionStore sessionStore;
     private final JwtUtils jwtUtils;
+    private final TokenEpochService tokenEpochService;
+    private final AccessTokenDenylistService accessTokenDenylistService;
+    private final MeterRegistry meterRegistry;
     private final SecureRandom secureRandom = new SecureRandom();
 
     @Value("${jwt.security.refresh-token.expiration.time.in-days:30}")
@@ -32,82 +46,98 @@ public class RefreshTokenService {
     @Value("${jwt.security.refresh-token.length:64}")
     private int refreshTokenLength;
 
+    /**
+     * how long a rotated refresh token is remembered to detect its reuse
+     */
+    @Value("${jwt.security.refresh-token.reuse-detection-window.in-hours:24}")
+    private long reuseDetectionWindowInHours;
+
     @Value("${jwt.security.max-active-sessions:5}")
     private int maxActiveSessions;
 
     /**
-     * Creates a new user session with access token and refresh token
+     * Creates a new user session for the access token, the oldest sessions beyond the limit are revoked
+     * @return the refresh token handed over to the client, only its digest is stored
      */
-    @Transactional
-    public UserSession createSession(BjyotishUser user, String accessToken, HttpServletRequest request) {
-        // Check if user has too many active sessions
-        long activeSessionCount = userSessionRepository.countActiveSessionsForUser(user.getId());
-        if (activeSessionCount >= maxActiveSessions) {
-            // Deactivate oldest session or all sessions based on business logic
-            log.info("User {} has reached max active sessions limit. Deactivating oldest session.", user.getEmail());
-            // Using virtual thread to deactivate oldest session asynchronously
-            Thread.startVirtualThread(() -> {
-                deactivateOldestSession(user.getId());
-            });
-        }
-
+    public String createSession(BjyotishUser user, IssuedToken accessToken, HttpServletRequest request) {
         String refreshToken = generateRefreshToken();
-        Instant refreshTokenExpiresAt = Instant.now().plusSeconds(refreshTokenExpirationInDays * 24 * 60 * 60L);
-
-        UserSession session = UserSession.builder()
-                .bjyotishUserId(user.getId())
-                .sessionToken(accessToken)
-                .refreshToken(refreshToken)
-                .expiresAt(refreshTokenExpiresAt)
-                .isActive(true)
-                .ipAddress(getClientIpAddress(request))
-                .userAgent(request.getHeader("User-Agent"))
-                .build();
-
-        UserSession savedSession = userSessionRepository.save(session);
+        Instant now = Instant.now();
+        SessionRecord session = new SessionRecord(UUID.randomUUID(), user.getId(), TokenDigest.sha256(refreshToken),
+                accessToken.tokenId(), now.plus(Duration.ofDays(refreshTokenExpirationInDays)), now, now, true,
+                request.getRemoteAddr(), request.getHeader("User-Agent"));
+
+        List<SessionRecord> evicted = sessionStore.create(session, maxActiveSessions);
+        if (!evicted.isEmpty()) {
+            log.info("User {} has reached max active sessions limit. Deactivated {} oldest session(s).", user.getEmail(), evicted.size());
+            evicted.forEach(oldest -> revokeAccessToken(oldest.accessTokenId()));
+        }
         log.info("Created new session for user: {}", user.getEmail());
-        return savedSession;
+        return refreshToken;
     }
 
     /**
-     * Generates a new access token using the refresh token
+     * Exchanges the refresh token for a new access token and a new refresh token (rotation).
+     * Presenting a refresh token that was already rotated means it leaked, the whole session is revoked
      */
-    @Transactional
-    public Optional<TokenRefreshResult> refreshAccessToken(String refreshToken, HttpServletRequest request) {
-        Optional<UserSession> sessionOpt = userSessionRepository.findByRefreshTokenAndIsActiveTrue(refreshToken);
+    public Optional<TokenRefreshResult> refreshAccessToken(String refreshToken) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Optional<TokenRefreshResult> result = doRefreshAccessToken(refreshToken);
+        sample.stop(Timer.builder("bjyotish.auth.refresh")
+                .description("Latency of the access token refresh")
+                .tag("outcome", result.isPresent() ? "refreshed" : "rejected")
+                .register(meterRegistry));
+        return result;
+    }
+
+    private Optional<TokenRefreshResult> doRefreshAccessToken(String refreshToken) {
+        byte[] refreshTokenHash = TokenDigest.sha256(refreshToken);
+        Optional<SessionRecord> sessionOpt = sessionStore.findActiveByRefreshTokenHash(refreshTokenHash);
 
         if (sessionOpt.isEmpty()) {
-            log.warn("Invalid or expired refresh token provided");
+            sessionStore.findByRotatedRefreshTokenHash(refreshTokenHash).ifPresentOrElse(
+                    this::revokeReusedSession,
+                    () -> log.warn("Invalid or expired refresh token provided"));
             return Optional.empty();
         }
 
-        UserSession session = sessionOpt.get();
+        SessionRecord session = sessionOpt.get();
 
         // Check if refresh token is expired
-        if (session.getExpiresAt().isBefore(Instant.now())) {
-            log.warn("Refresh token has expired for user session: {}", session.getId());
-            session.setIsActive(false);
-            userSessionRepository.save(session);
+        if (session.isExpired()) {
+            log.warn("Refresh token has expired for user session: {}", session.sessionId());
+            sessionStore.deactivate(session);
             return Optional.empty();
         }
 
-        // Generate new access token
-        BjyotishUser user = session.getBjyotishUser();
-        String newAccessToken = jwtUtils.generateJwtToken(user.getEmail());
-
-        // Update session with new access token
-        session.setSessionToken(newAccessToken);
-        session.setIpAddress(getClientIpAddress(request));
-        session.setUserAgent(request.getHeader("User-Agent"));
+        Optional<BjyotishUser> userOpt = bjyotishUserRepository.findById(session.userId());
+        if (userOpt.isEmpty()) {
+            log.warn("User {} of the session {} no longer exists", session.userId(), session.sessionId());
+            sessionStore.deactivate(session);
+            return Optional.empty();
+        }
 
-        userSessionRepository.save(session);
+        // Generate new access token and rotate the refresh token
+        BjyotishUser user = userOpt.get();
+        IssuedToken newAccessToken = jwtUtils.issueJwtToken(user, tokenEpochService.currentEpoch(user.getId()));
+        String newRefreshToken = generateRefreshToken();
+        SessionRecord rotated = session.rotated(TokenDigest.sha256(newRefreshToken), newAccessToken.tokenId(), Instant.now());
+
+        if (!sessionStore.rotate(session, rotated, Duration.ofHours(reuseDetectionWindowInHours))) {
+            // a concurrent refresh already rotated the same token, the access token it minted is the one of the
+            // session as stored now, not the one of the stale snapshot
+            revokeAccessToken(session.accessTokenId());
+            sessionStore.findByRotatedRefreshTokenHash(session.refreshTokenHash()).ifPresentOrElse(
+                    this::revokeReusedSession,
+                    () -> revokeReusedSession(session));
+            return Optional.empty();
+        }
 
         log.info("Successfully refreshed access token for user: {}", user.getEmail());
 
         return Optional.of(TokenRefreshResult.builder()
-                .accessToken(newAccessToken)
-                .refreshToken(refreshToken)
-                .expiresAt(Instant.ofEpochMilli(System.currentTimeMillis() + jwtUtils.getJwtExpirationTimeInMillis()))
+                .accessToken(newAccessToken.token())
+                .refreshToken(newRefreshToken)
+                .expiresAt(newAccessToken.expiresAt())
                 .user(user)
                 .build());
     }
@@ -120,120 +150,70 @@ public class RefreshTokenService {
             return false;
         }
 
-        Optional<UserSession> sessionOpt = userSessionRepository.findByRefreshTokenAndIsActiveTrue(refreshToken);
-
-        if (sessionOpt.isEmpty()) {
-            return false;
-        }
-
-        UserSession session = sessionOpt.get();
-        return session.getExpiresAt().isAfter(Instant.now());
+        return sessionStore.findActiveByRefreshTokenHash(TokenDigest.sha256(refreshToken))
+                .map(session -> !session.isExpired())
+                .orElse(false);
     }
 
     /**
      * Revokes a refresh token (logout)
      */
-    @Transactional
     public boolean revokeRefreshToken(String refreshToken) {
-        Optional<UserSession> sessionOpt = userSessionRepository.findByRefreshTokenAndIsActiveTrue(refreshToken);
+        Optional<SessionRecord> sessionOpt = sessionStore.findActiveByRefreshTokenHash(TokenDigest.sha256(refreshToken));
 
-        if (sessionOpt.isEmpty()) {
+        if (sessionOpt.isEmpty() || !sessionStore.deactivate(sessionOpt.get())) {
             return false;
         }
 
-        UserSession session = sessionOpt.get();
-        session.setIsActive(false);
-        userSessionRepository.save(session);
+        SessionRecord session = sessionOpt.get();
+        revokeAccessToken(session.accessTokenId());
 
-        log.info("Revoked refresh token for session: {}", session.getId());
+        log.info("Revoked refresh token for session: {}", session.sessionId());
         return true;
     }
 
     /**
-     * Revokes all refresh tokens for a user (logout from all devices)
+     * Revokes all refresh tokens for a user (logout from all devices, password reset).
+     * Bumping the epoch revokes every outstanding access token with a single increment,
+     * the sessions are deactivated before returning so that no refresh token can mint a new one
      */
-    @Transactional
     public void revokeAllRefreshTokensForUser(Long userId) {
-        Thread.startVirtualThread(() -> {
-            try {
-                userSessionRepository.deactivateAllSessionsForUser(userId);
-                log.info("Revoked all refresh tokens for user: {}", userId);
-            } catch (Exception e) {
-                log.error("Error revoking all tokens for user {}", userId, e);
-            }
-        });
+        tokenEpochService.incrementEpoch(userId);
+        sessionStore.deactivateAllForUser(userId);
+        log.info("Revoked all refresh tokens for user: {}", userId);
     }
 
     /**
-     * Generates a cryptographically secure random refresh token
+     * Revokes the token family of a replayed refresh token, the legitimate client has to log in again
      */
-    private String generateRefreshToken() {
-        byte[] tokenBytes = new byte[refreshTokenLength];
-        secureRandom.nextBytes(tokenBytes);
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+    private void revokeReusedSession(SessionRecord session) {
+        log.warn("Reuse of a rotated refresh token detected, revoking the session {} of user {}", session.sessionId(), session.userId());
+        Counter.builder("bjyotish.auth.refresh.reuse")
+                .description("Replays of already rotated refresh tokens")
+                .register(meterRegistry)
+                .increment();
+        sessionStore.deactivate(session);
+        revokeAccessToken(session.accessTokenId());
     }
 
     /**
-     * Cleans up expired refresh tokens
+     * Denylists the access token of the session, so that it is rejected on every node before its expiry.
+     * The token was issued at the latest now, so its full lifetime bounds the remaining one
      */
-    @Transactional
-    public void cleanupExpiredTokens() {
-        Thread.startVirtualThread(() -> {
-            try {
-                userSessionRepository.deleteExpiredSessions(Instant.now());
-                log.info("Cleaned up expired refresh tokens");
-            } catch (Exception e) {
-                log.error("Error cleaning up expired tokens", e);
-            }
-        });
-    }
-
-    /**
-     * Deactivates the oldest session for a user
-     */
-    @Transactional
-    private void deactivateOldestSession(Long userId) {
-        try {
-            userSessionRepository.findByBjyotishUserIdAndIsActiveTrue(userId)
-                    .stream()
-                    .min((s1, s2) -> s1.getCreatedAt().compareTo(s2.getCreatedAt()))
-                    .ifPresent(oldestSession -> {
-                        oldestSession.setIsActive(false);
-                        userSessionRepository.save(oldestSession);
-                        log.info("Deactivated oldest session: {}", oldestSession.getId());
-                    });
-        } catch (Exception e) {
-            log.error("Error deactivating oldest session for user {}", userId, e);
+    private void revokeAccessToken(UUID accessTokenId) {
+        if (accessTokenId != null) {
+            accessTokenDenylistService.revoke(accessTokenId.toString(),
+                    Instant.now().plusMillis(jwtUtils.getJwtExpirationTimeInMillis()));
         }
     }
 
     /**
-     * Extracts client IP address from request
+     * Generates a cryptographically secure random refresh token
      */
-    private String getClientIpAddress(HttpServletRequest request) {
-        String[] headerNames = {
-                "X-Forwarded-For",
-                "X-Real-IP",
-                "Proxy-Client-IP",
-                "WL-Proxy-Client-IP",
-                "HTTP_X_FORWARDED_FOR",
-                "HTTP_X_FORWARDED",
-                "HTTP_X_CLUSTER_CLIENT_IP",
-                "HTTP_CLIENT_IP",
-                "HTTP_FORWARDED_FOR",
-                "HTTP_FORWARDED",
-                "HTTP_VIA",
-                "REMOTE_ADDR"
-        };
-
-        for (String headerName : headerNames) {
-            String ip = request.getHeader(headerName);
-            if (StringUtils.hasText(ip) && !"unknown".equalsIgnoreCase(ip)) {
-                return ip.split(",")[0].trim();
-            }
-        }
-
-        return request.getRemoteAddr();
+    private String generateRefreshToken() {
+        byte[] tokenBytes = new byte[refreshTokenLength];
+        secureRandom.nextBytes(tokenBytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
     }
 
     /**
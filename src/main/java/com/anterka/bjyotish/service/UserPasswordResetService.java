@@ -6,11 +6,10 @@ import com.anterka.bjyotish.dto.users.request.UserResetPasswordRequest;
 import com.anterka.bjyotish.dto.users.response.UserTokenValidationResponse;
 import com.anterka.bjyotish.entities.BjyotishUser;
 import com.anterka.bjyotish.exception.*;
-import jakarta.mail.MessagingException;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import redis.clients.jedis.JedisPooled;
 
@@ -23,8 +22,9 @@ public class UserPasswordResetService {
     private static final String PASSWORD_RESET_PREFIX = "password_reset:";
     private final JedisPooled jedisPooled;
     private final BjyotishUserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
+    private final RefreshTokenService refreshTokenService;
 
     public void processForgotPassword(UserForgotPasswordRequest request) {
         try {
@@ -76,6 +76,8 @@ public class UserPasswordResetService {
 
             user.setPasswordHash(passwordEncoder.encode(request.getNewPassword()));
             userRepository.save(user);
+            // the tokens issued with the old password must not outlive it
+            refreshTokenService.revokeAllRefreshTokensForUser(user.getId());
 
             jedisPooled.del(redisKey);
         } catch (Exception e) {
@@ -101,7 +103,6 @@ public class UserPasswordResetService {
             if (userId == null) {
                 return new UserTokenValidationResponse(false, "Invalid or expired token");
             }
-            //TODO: Add the token validation rate limiting logic w.r.t an IP or user
             return new UserTokenValidationResponse(true, "Token is valid");
         } catch (Exception e) {
             log.error("Error in validateToken: {}", e.getMessage(), e);
@@ -136,10 +137,6 @@ public class UserPasswordResetService {
     }
 
     private void sendEmail(String email, String resetLink, long tokenExpiryMinutes){
-        try {
-            emailService.sendForgotPasswordLinkMail(email, resetLink, tokenExpiryMinutes);
-        } catch (MessagingException exception) {
-            log.error(String.format("Exception occurred while sending the forgot password email to the user : [%s]", email));
-        }
+        emailService.sendForgotPasswordLinkMail(email, resetLink, tokenExpiryMinutes);
     }
 }
@@ -0,0 +1,246 @@
+package com.anterka.bjyotish.service.email;
+
+import com.anterka.bjyotish.constants.enums.EmailOutboxStatusEnum;
+import com.anterka.bjyotish.dao.EmailOutboxRepository;
+import com.anterka.bjyotish.entities.EmailOutboxMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers the mails of the [email_outbox] table.
+ * <ul>
+ *     <li>the due mails are claimed in batches with [FOR UPDATE SKIP LOCKED], so every node can drain the outbox</li>
+ *     <li>a batch is split in chunks sent by a bounded pool of virtual threads, a chunk goes through a single
+ *     connection of the [PooledMailTransport]</li>
+ *     <li>a failed mail is retried with an exponential backoff and dead-lettered ([DEAD]) once its attempts are exhausted</li>
+ * </ul>
+ */
+@Service
+public class EmailOutboxWorker implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxWorker.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final PooledMailTransport mailTransport;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService senders;
+
+    private final AtomicLong pendingMessages = new AtomicLong();
+    private final Counter sentMessages;
+    private final Counter retriedMessages;
+    private final Counter deadMessages;
+    private final Timer deliveryLatency;
+
+    @Value("${email.outbox.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * bounds the time a poll holds its scheduler thread, the rest of the backlog is left to the next polls
+     */
+    @Value("${email.outbox.max-batches-per-poll:5}")
+    private int maxBatchesPerPoll;
+
+    @Value("${email.outbox.retention-days:7}")
+    private long retentionDays;
+
+    @Value("${email.outbox.purge-batch-size:5000}")
+    private int purgeBatchSize;
+
+    @Value("${email.outbox.chunk-size:50}")
+    private int chunkSize;
+
+    @Value("${email.outbox.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${email.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.retry.initial-backoff-seconds:30}")
+    private long initialBackoffSeconds;
+
+    @Value("${email.outbox.retry.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    public EmailOutboxWorker(EmailOutboxRepository emailOutboxRepository, PooledMailTransport mailTransport, MeterRegistry meterRegistry,
+                             @Value("${email.outbox.senders:${email.smtp.pool-size:4}}") int senders) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.mailTransport = mailTransport;
+        this.meterRegistry = meterRegistry;
+        this.senders = Executors.newFixedThreadPool(senders, Thread.ofVirtual().name("email-outbox-", 0).factory());
+        Gauge.builder("bjyotish.email.outbox.depth", pendingMessages, AtomicLong::get)
+                .description("Mails waiting in the outbox")
+                .register(meterRegistry);
+        this.sentMessages = Counter.builder("bjyotish.email.outbox.sent")
+                .description("Mails delivered from the outbox")
+                .register(meterRegistry);
+        this.retriedMessages = Counter.builder("bjyotish.email.outbox.retried")
+                .description("Mail deliveries failed and scheduled for a retry")
+                .register(meterRegistry);
+        this.deadMessages = Counter.builder("bjyotish.email.outbox.dead")
+                .description("Mails dead-lettered after exhausting their attempts")
+                .register(meterRegistry);
+        this.deliveryLatency = Timer.builder("bjyotish.email.outbox.delivery.latency")
+                .description("Time from the enqueue of a mail to its delivery")
+                .register(meterRegistry);
+    }
+
+    /**
+     * claims and sends the due mails, a full batch means more are due so the poll claims the next one right away
+     */
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-millis:1000}")
+    public void drain() {
+        List<EmailOutboxMessage> claimed;
+        int batches = 0;
+        do {
+            Instant now = Instant.now();
+            claimed = emailOutboxRepository.claimDueMessages(now, now.plusSeconds(leaseSeconds), batchSize);
+            List<CompletableFuture<Void>> chunks = new ArrayList<>();
+            for (int from = 0; from < claimed.size(); from += chunkSize) {
+                List<EmailOutboxMessage> chunk = claimed.subList(from, Math.min(from + chunkSize, claimed.size()));
+                chunks.add(CompletableFuture.runAsync(() -> sendChunk(chunk), senders));
+            }
+            CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).join();
+        } while (claimed.size() == batchSize && ++batches < maxBatchesPerPoll);
+    }
+
+    /**
+     * refreshes the outbox depth gauge, the count scans the pending index so it runs far less often than the polls
+     */
+    @Scheduled(fixedDelayString = "${email.outbox.depth-refresh-interval-millis:30000}")
+    public void refreshPendingMessages() {
+        pendingMessages.set(emailOutboxRepository.countByStatus(EmailOutboxStatusEnum.PENDING));
+    }
+
+    /**
+     * deletes the SENT and DEAD mails older than [email.outbox.retention-days] in batches
+     * @return the number of deleted mails
+     */
+    public long purgeFinishedMessages() {
+        Instant before = Instant.now().minus(Duration.ofDays(retentionDays));
+        long purged = 0;
+        int deleted;
+        do {
+            deleted = emailOutboxRepository.deleteFinishedBatch(before, purgeBatchSize);
+            purged += deleted;
+        } while (deleted == purgeBatchSize);
+        log.info("Purged {} sent and dead mails from the outbox", purged);
+        return purged;
+    }
+
+    /**
+     * sends the chunk through a single SMTP connection, the outcome is recorded per mail
+     */
+    private void sendChunk(List<EmailOutboxMessage> chunk) {
+        Map<MimeMessage, EmailOutboxMessage> messages = new IdentityHashMap<>();
+        for (EmailOutboxMessage outboxMessage : chunk) {
+            try {
+                messages.put(toMimeMessage(outboxMessage), outboxMessage);
+            } catch (MessagingException e) {
+                // a malformed mail does not get any better with a retry
+                deadLetter(outboxMessage, e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+        Map<MimeMessage, Exception> failed;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "sent";
+        try {
+            failed = mailTransport.send(new ArrayList<>(messages.keySet()));
+            if (!failed.isEmpty()) {
+                outcome = failed.size() == messages.size() ? "failed" : "partially_failed";
+            }
+        } catch (InterruptedException e) {
+            // the lease expires and the chunk is claimed again
+            Thread.currentThread().interrupt();
+            outcome = "interrupted";
+            return;
+        } finally {
+            sample.stop(Timer.builder("bjyotish.email.outbox.send")
+                    .description("Duration of the SMTP delivery of an outbox chunk")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+        Instant sentAt = Instant.now();
+        List<Long> sentIds = new ArrayList<>(messages.size());
+        for (Map.Entry<MimeMessage, EmailOutboxMessage> entry : messages.entrySet()) {
+            Exception failure = failed.get(entry.getKey());
+            if (failure != null) {
+                retryOrDeadLetter(entry.getValue(), failure);
+            } else {
+                sentIds.add(entry.getValue().getId());
+                deliveryLatency.record(Duration.between(entry.getValue().getCreatedAt(), sentAt));
+            }
+        }
+        if (!sentIds.isEmpty()) {
+            emailOutboxRepository.markSent(sentIds, sentAt);
+            sentMessages.increment(sentIds.size());
+        }
+    }
+
+    private MimeMessage toMimeMessage(EmailOutboxMessage outboxMessage) throws MessagingException {
+        MimeMessage message = mailTransport.createMimeMessage();
+        MimeMessageHelper messageHelper = new MimeMessageHelper(message, false, "UTF-8");
+        messageHelper.setTo(outboxMessage.getRecipient());
+        messageHelper.setSubject(outboxMessage.getSubject());
+        messageHelper.setText(outboxMessage.getBody(), Boolean.TRUE.equals(outboxMessage.getIsHtml()));
+        return message;
+    }
+
+    private void retryOrDeadLetter(EmailOutboxMessage outboxMessage, Exception failure) {
+        if (outboxMessage.getAttempts() >= maxAttempts) {
+            deadLetter(outboxMessage, failure);
+            return;
+        }
+        long backoffSeconds = Math.min(maxBackoffSeconds, initialBackoffSeconds << Math.min(outboxMessage.getAttempts() - 1, 20));
+        emailOutboxRepository.scheduleRetry(outboxMessage.getId(), Instant.now().plusSeconds(backoffSeconds), errorOf(failure));
+        retriedMessages.increment();
+        log.warn("Email {} failed on attempt {}, retrying in {}s: {}", outboxMessage.getId(), outboxMessage.getAttempts(),
+                backoffSeconds, failure.getMessage());
+    }
+
+    private void deadLetter(EmailOutboxMessage outboxMessage, Exception failure) {
+        emailOutboxRepository.markDead(outboxMessage.getId(), errorOf(failure));
+        deadMessages.increment();
+        log.error("Email {} dead-lettered after {} attempts: {}", outboxMessage.getId(), outboxMessage.getAttempts(),
+                failure.getMessage());
+    }
+
+    private static String errorOf(Exception failure) {
+        String error = failure.getClass().getSimpleName() + ": " + failure.getMessage();
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        senders.shutdown();
+        if (!senders.awaitTermination(30, TimeUnit.SECONDS)) {
+            senders.shutdownNow();
+        }
+    }
+}
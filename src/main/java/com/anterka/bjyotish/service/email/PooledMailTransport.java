@@ -0,0 +1,127 @@
+package com.anterka.bjyotish.service.email;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Keeps up to [email.smtp.pool-size] authenticated SMTP connections open and sends many mails per connection,
+ * instead of the connect, EHLO, STARTTLS and AUTH round trips of [JavaMailSender#send] for every call.
+ * A connection is renewed after [email.smtp.max-messages-per-connection] mails since the servers cap them,
+ * and discarded as soon as it is found broken.
+ */
+@Component
+public class PooledMailTransport implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledMailTransport.class);
+
+    private final JavaMailSenderImpl mailSender;
+    private final BlockingQueue<PooledConnection> idle;
+    private final Semaphore permits;
+    private final int maxMessagesPerConnection;
+
+    public PooledMailTransport(JavaMailSenderImpl mailSender, MeterRegistry meterRegistry,
+                               @Value("${email.smtp.pool-size:4}") int poolSize,
+                               @Value("${email.smtp.max-messages-per-connection:500}") int maxMessagesPerConnection) {
+        this.mailSender = mailSender;
+        this.idle = new ArrayBlockingQueue<>(poolSize);
+        this.permits = new Semaphore(poolSize, true);
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        Gauge.builder("bjyotish.email.smtp.connections.idle", idle, BlockingQueue::size)
+                .description("Open SMTP connections waiting in the pool")
+                .register(meterRegistry);
+    }
+
+    public MimeMessage createMimeMessage() {
+        return mailSender.createMimeMessage();
+    }
+
+    /**
+     * sends the messages through one pooled connection, waiting for a free one when they are all busy
+     * @return the messages that could not be sent with the cause, empty when all were sent
+     */
+    public Map<MimeMessage, Exception> send(List<MimeMessage> messages) throws InterruptedException {
+        Map<MimeMessage, Exception> failed = new IdentityHashMap<>();
+        permits.acquire();
+        PooledConnection connection = idle.poll();
+        try {
+            for (MimeMessage message : messages) {
+                try {
+                    connection = connected(connection);
+                    message.saveChanges();
+                    Address[] recipients = message.getAllRecipients();
+                    connection.transport().sendMessage(message, recipients);
+                    connection = connection.used();
+                } catch (MessagingException e) {
+                    failed.put(message, e);
+                    if (connection != null && !connection.transport().isConnected()) {
+                        close(connection);
+                        connection = null;
+                    }
+                }
+            }
+        } finally {
+            if (connection != null && !idle.offer(connection)) {
+                close(connection);
+            }
+            permits.release();
+        }
+        return failed;
+    }
+
+    /**
+     * @return the connection when it is still usable, a new one otherwise
+     */
+    private PooledConnection connected(PooledConnection connection) throws MessagingException {
+        if (connection != null && connection.sent() < maxMessagesPerConnection && connection.transport().isConnected()) {
+            return connection;
+        }
+        if (connection != null) {
+            close(connection);
+        }
+        // [JavaMailSenderImpl] only applies its [smtp] default inside its own protected getTransport
+        String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+        Transport transport = mailSender.getSession().getTransport(protocol);
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        return new PooledConnection(transport, 0);
+    }
+
+    private static void close(PooledConnection connection) {
+        try {
+            connection.transport().close();
+        } catch (MessagingException e) {
+            log.debug("Failed to close the SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        PooledConnection connection;
+        while ((connection = idle.poll()) != null) {
+            close(connection);
+        }
+    }
+
+    private record PooledConnection(Transport transport, int sent) {
+
+        PooledConnection used() {
+            return new PooledConnection(transport, sent + 1);
+        }
+    }
+}
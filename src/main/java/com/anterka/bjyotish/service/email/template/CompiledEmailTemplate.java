@@ -0,0 +1,98 @@
+package com.anterka.bjyotish.service.email.template;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Email template parsed once into alternating literal and placeholder segments, rendering only appends them.
+ * <pre>
+ * Subject: subject line with {{placeholders}}
+ * body with {{placeholders}}
+ * </pre>
+ * The values are HTML escaped in the [HTML] templates.
+ */
+final class CompiledEmailTemplate {
+
+    private static final String SUBJECT_HEADER = "Subject:";
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    private final String name;
+    private final EmailContentType contentType;
+    private final Segments subject;
+    private final Segments body;
+
+    private CompiledEmailTemplate(String name, EmailContentType contentType, Segments subject, Segments body) {
+        this.name = name;
+        this.contentType = contentType;
+        this.subject = subject;
+        this.body = body;
+    }
+
+    static CompiledEmailTemplate compile(String name, EmailContentType contentType, String source) {
+        String normalized = source.replace("\r\n", "\n");
+        int lineEnd = normalized.indexOf('\n');
+        String firstLine = lineEnd < 0 ? normalized : normalized.substring(0, lineEnd);
+        if (!firstLine.startsWith(SUBJECT_HEADER)) {
+            throw new IllegalArgumentException("Email template [" + name + "] must start with a [" + SUBJECT_HEADER + "] line");
+        }
+        String bodySource = lineEnd < 0 ? "" : normalized.substring(lineEnd + 1);
+        return new CompiledEmailTemplate(name, contentType,
+                Segments.parse(name, firstLine.substring(SUBJECT_HEADER.length()).trim()),
+                Segments.parse(name, bodySource));
+    }
+
+    /**
+     * renders into [buffer], which is cleared first and can be reused across the calls
+     */
+    RenderedEmail render(Map<String, ?> parameters, StringBuilder buffer) {
+        buffer.setLength(0);
+        subject.appendTo(buffer, parameters, false);
+        String renderedSubject = buffer.toString();
+        buffer.setLength(0);
+        body.appendTo(buffer, parameters, contentType == EmailContentType.HTML);
+        return new RenderedEmail(renderedSubject, buffer.toString(), contentType == EmailContentType.HTML);
+    }
+
+    /**
+     * [literals] has one more element than [placeholders], the text around and between the placeholders
+     */
+    private record Segments(String template, String[] literals, String[] placeholders) {
+
+        static Segments parse(String template, String source) {
+            List<String> literals = new ArrayList<>();
+            List<String> placeholders = new ArrayList<>();
+            int position = 0;
+            while (true) {
+                int open = source.indexOf(OPEN, position);
+                if (open < 0) {
+                    break;
+                }
+                int close = source.indexOf(CLOSE, open + OPEN.length());
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed placeholder in the email template [" + template + "]");
+                }
+                literals.add(source.substring(position, open));
+                placeholders.add(source.substring(open + OPEN.length(), close).trim());
+                position = close + CLOSE.length();
+            }
+            literals.add(source.substring(position));
+            return new Segments(template, literals.toArray(String[]::new), placeholders.toArray(String[]::new));
+        }
+
+        void appendTo(StringBuilder buffer, Map<String, ?> parameters, boolean escapeHtml) {
+            for (int i = 0; i < placeholders.length; i++) {
+                buffer.append(literals[i]);
+                Object value = parameters.get(placeholders[i]);
+                if (value == null) {
+                    throw new IllegalArgumentException("Missing parameter [" + placeholders[i] + "] of the email template [" + template + "]");
+                }
+                buffer.append(escapeHtml ? HtmlUtils.htmlEscape(value.toString()) : value);
+            }
+            buffer.append(literals[placeholders.length]);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.anterka.bjyotish.service.email.template;
+
+/**
+ * Content type of an email template, given by the extension of its file
+ */
+public enum EmailContentType {
+    TEXT("txt"),
+    HTML("html");
+
+    private final String extension;
+
+    EmailContentType(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    static EmailContentType fromExtension(String extension) {
+        for (EmailContentType contentType : values()) {
+            if (contentType.extension.equals(extension)) {
+                return contentType;
+            }
+        }
+        return null;
+    }
+}
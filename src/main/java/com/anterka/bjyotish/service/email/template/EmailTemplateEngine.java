@@ -0,0 +1,118 @@
+package com.anterka.bjyotish.service.email.template;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Email templates of [classpath:templates/email/], named [name].[txt|html] or [name]_[locale].[txt|html]
+ * (e.g. otp_verification_hi.txt, forgot_password_en_IN.html).
+ * They are all compiled once at startup and cached per name, locale and content type, rendering a mail only appends
+ * the compiled segments into a buffer reused by the rendering thread.
+ * A locale falls back to its language, then to [email.templates.default-locale], then to the template without locale.
+ */
+@Component
+public class EmailTemplateEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailTemplateEngine.class);
+    private static final String TEMPLATES_LOCATION = "classpath*:templates/email/*.*";
+    private static final int INITIAL_BUFFER_CAPACITY = 1024;
+    private static final int MAX_RETAINED_BUFFER_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_BUFFER_CAPACITY));
+
+    private final Map<TemplateKey, CompiledEmailTemplate> templates = new HashMap<>();
+    private final Locale defaultLocale;
+
+    public EmailTemplateEngine(@Value("${email.templates.default-locale:en}") String defaultLocale) {
+        this.defaultLocale = StringUtils.parseLocale(defaultLocale);
+        loadTemplates();
+    }
+
+    public RenderedEmail render(String name, Locale locale, Map<String, ?> parameters) {
+        return render(name, locale, EmailContentType.TEXT, parameters);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no such template or a parameter is missing
+     */
+    public RenderedEmail render(String name, Locale locale, EmailContentType contentType, Map<String, ?> parameters) {
+        CompiledEmailTemplate template = resolve(name, locale != null ? locale : defaultLocale, contentType);
+        StringBuilder buffer = BUFFER.get();
+        try {
+            return template.render(parameters, buffer);
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_BUFFER_CAPACITY) {
+                BUFFER.remove();
+            }
+        }
+    }
+
+    private CompiledEmailTemplate resolve(String name, Locale locale, EmailContentType contentType) {
+        for (String tag : new String[]{localeTag(locale), locale.getLanguage(), localeTag(defaultLocale), defaultLocale.getLanguage(), ""}) {
+            CompiledEmailTemplate template = templates.get(new TemplateKey(name, tag, contentType));
+            if (template != null) {
+                return template;
+            }
+        }
+        throw new IllegalArgumentException("No email template [" + name + "] of type [" + contentType + "] for the locale [" + locale + "]");
+    }
+
+    private void loadTemplates() {
+        Resource[] resources;
+        try {
+            resources = new PathMatchingResourcePatternResolver().getResources(TEMPLATES_LOCATION);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list the email templates", e);
+        }
+        for (Resource resource : resources) {
+            String filename = resource.getFilename();
+            int extensionStart = filename != null ? filename.lastIndexOf('.') : -1;
+            EmailContentType contentType = extensionStart > 0 ? EmailContentType.fromExtension(filename.substring(extensionStart + 1)) : null;
+            if (contentType == null) {
+                continue;
+            }
+            TemplateKey key = parseKey(filename.substring(0, extensionStart), contentType);
+            try {
+                String source = resource.getContentAsString(StandardCharsets.UTF_8);
+                templates.put(key, CompiledEmailTemplate.compile(filename, contentType, source));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read the email template [" + filename + "]", e);
+            }
+        }
+        log.info("Compiled {} email templates", templates.size());
+    }
+
+    /**
+     * the locale suffix is the part after the first [_] followed by a two letter language, [otp_verification] has no locale
+     */
+    static TemplateKey parseKey(String baseName, EmailContentType contentType) {
+        int separator = baseName.indexOf('_');
+        while (separator >= 0) {
+            String suffix = baseName.substring(separator + 1);
+            if (suffix.matches("[a-z]{2}(_[A-Z]{2})?")) {
+                return new TemplateKey(baseName.substring(0, separator), suffix, contentType);
+            }
+            separator = baseName.indexOf('_', separator + 1);
+        }
+        return new TemplateKey(baseName, "", contentType);
+    }
+
+    private static String localeTag(Locale locale) {
+        return locale.getCountry().isEmpty() ? locale.getLanguage() : locale.getLanguage() + "_" + locale.getCountry();
+    }
+
+    record TemplateKey(String name, String locale, EmailContentType contentType) {
+    }
+}
@@ -0,0 +1,4 @@
+package com.anterka.bjyotish.service.email.template;
+
+public record RenderedEmail(String subject, String body, boolean html) {
+}
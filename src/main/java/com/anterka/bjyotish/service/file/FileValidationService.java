@@ -7,10 +7,21 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * Validates the uploads without loading them in the heap : the content type is checked against the magic number
+ * sniffed from the first bytes, and the image dimensions are read from the image header by an [ImageReader]
+ * instead of decoding the whole image.
+ */
 @Service
 @Slf4j
 public class FileValidationService {
@@ -24,6 +35,17 @@ public class FileValidationService {
     private static final long MAX_AUDIO_SIZE = 50 * 1024 * 1024; // 50MB
     private static final long MAX_VIDEO_SIZE = 100 * 1024 * 1024; // 100MB
 
+    private static final int HEADER_LENGTH = 16;
+    private static final Map<String, byte[]> MAGIC_NUMBERS = Map.of(
+            "image/jpeg", new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},
+            "image/png", new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'},
+            "image/gif", "GIF8".getBytes(StandardCharsets.US_ASCII),
+            "image/webp", "RIFF".getBytes(StandardCharsets.US_ASCII),
+            "application/pdf", "%PDF-".getBytes(StandardCharsets.US_ASCII),
+            "application/msword", new byte[]{(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1},
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document", new byte[]{'P', 'K', 0x03, 0x04});
+    private static final byte[] WEBP_FORMAT = "WEBP".getBytes(StandardCharsets.US_ASCII);
+
     /**
      * Validate file based on type and content
      */
@@ -37,8 +59,27 @@ public class FileValidationService {
         validateFileContent(file, fileType);
     }
 
-    private void validateFileSize(MultipartFile file, FileTypeEnum fileType) {
-        long maxSize = switch (fileType) {
+    /**
+     * Validate the content of a file already spooled to disk, the file is read from its header only
+     */
+    public void validateContent(SpooledUpload upload, FileTypeEnum fileType) {
+        try {
+            validateMagicNumber(upload.header(HEADER_LENGTH), upload.contentType());
+            if (isImageFileType(fileType)) {
+                try (ImageInputStream input = ImageIO.createImageInputStream(upload.file())) {
+                    validateImageContent(input);
+                }
+            }
+        } catch (Exception e) {
+            throw new FileUploadException("File content validation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the maximum size in bytes of the files of the type
+     */
+    public long maxFileSize(FileTypeEnum fileType) {
+        return switch (fileType) {
             case PROFILE_IMAGE, BIRTH_CHART_IMAGE, BLOG_FEATURED_IMAGE,
                  BLOG_CONTENT_IMAGE, PRODUCT_IMAGE, YANTRA_IMAGE -> MAX_IMAGE_SIZE;
             case CERTIFICATION, REPORT_PDF, DOCUMENT, GEMSTONE_CERTIFICATE -> MAX_DOCUMENT_SIZE;
@@ -46,7 +87,10 @@ public class FileValidationService {
             case VIDEO_RECORDING -> MAX_VIDEO_SIZE;
             default -> MAX_DOCUMENT_SIZE;
         };
+    }
 
+    private void validateFileSize(MultipartFile file, FileTypeEnum fileType) {
+        long maxSize = maxFileSize(fileType);
         if (file.getSize() > maxSize) {
             throw new FileUploadException(
                     String.format("File size exceeds maximum limit of %d MB for file type %s",
@@ -79,9 +123,15 @@ public class FileValidationService {
 
     private void validateFileContent(MultipartFile file, FileTypeEnum fileType) {
         try {
+            try (InputStream input = file.getInputStream()) {
+                validateMagicNumber(input.readNBytes(HEADER_LENGTH), file.getContentType());
+            }
             // Additional content validation for images
             if (isImageFileType(fileType)) {
-                validateImageContent(file);
+                try (InputStream input = file.getInputStream();
+                     ImageInputStream imageInput = ImageIO.createImageInputStream(input)) {
+                    validateImageContent(imageInput);
+                }
             }
             // Additional validations for other file types can be added here
         } catch (Exception e) {
@@ -89,21 +139,47 @@ public class FileValidationService {
         }
     }
 
-    private void validateImageContent(MultipartFile file) throws Exception {
-        try (ByteArrayInputStream bis = new ByteArrayInputStream(file.getBytes())) {
-            BufferedImage image = ImageIO.read(bis);
-            if (image == null) {
-                throw new FileUploadException("Invalid image file - cannot be processed");
-            }
+    /**
+     * the content must start with the magic number of its declared type, the types without a known one are not sniffed
+     */
+    private void validateMagicNumber(byte[] header, String contentType) {
+        byte[] magicNumber = MAGIC_NUMBERS.get(contentType);
+        if (magicNumber == null) {
+            return;
+        }
+        boolean matches = header.length >= magicNumber.length
+                && Arrays.equals(header, 0, magicNumber.length, magicNumber, 0, magicNumber.length);
+        if (matches && "image/webp".equals(contentType)) {
+            matches = header.length >= 12 && Arrays.equals(header, 8, 12, WEBP_FORMAT, 0, WEBP_FORMAT.length);
+        }
+        if (!matches) {
+            throw new FileUploadException("File content does not match its content type " + contentType);
+        }
+    }
 
-            // Validate image dimensions
-            if (image.getWidth() < 50 || image.getHeight() < 50) {
-                throw new FileUploadException("Image dimensions too small (minimum 50x50 pixels)");
-            }
+    private void validateImageContent(ImageInputStream input) throws IOException {
+        Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+        if (readers == null || !readers.hasNext()) {
+            throw new FileUploadException("Invalid image file - cannot be processed");
+        }
+        ImageReader reader = readers.next();
+        int width;
+        int height;
+        try {
+            reader.setInput(input, true, true);
+            width = reader.getWidth(0);
+            height = reader.getHeight(0);
+        } finally {
+            reader.dispose();
+        }
 
-            if (image.getWidth() > 5000 || image.getHeight() > 5000) {
-                throw new FileUploadException("Image dimensions too large (maximum 5000x5000 pixels)");
-            }
+        // Validate image dimensions
+        if (width < 50 || height < 50) {
+            throw new FileUploadException("Image dimensions too small (minimum 50x50 pixels)");
+        }
+
+        if (width > 5000 || height > 5000) {
+            throw new FileUploadException("Image dimensions too large (maximum 5000x5000 pixels)");
         }
     }
 
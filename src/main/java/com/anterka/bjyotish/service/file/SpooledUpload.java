@@ -0,0 +1,83 @@
+package com.anterka.bjyotish.service.file;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Multipart file spooled to a temporary file of the spool directory, so that it is validated and uploaded from disk
+ * without ever being held in the heap. The servlet container moves its own temporary file when it can.
+ * The temporary file is deleted on [close].
+ */
+public final class SpooledUpload implements AutoCloseable {
+
+    private final Path path;
+    private final long size;
+    private final String contentType;
+    private final String originalFilename;
+
+    private SpooledUpload(Path path, long size, String contentType, String originalFilename) {
+        this.path = path;
+        this.size = size;
+        this.contentType = contentType;
+        this.originalFilename = originalFilename;
+    }
+
+    public static SpooledUpload spool(MultipartFile file, Path spoolDirectory) throws IOException {
+        Files.createDirectories(spoolDirectory);
+        Path path = spoolDirectory.resolve("upload-" + UUID.randomUUID());
+        try {
+            file.transferTo(path);
+            return new SpooledUpload(path, Files.size(path), file.getContentType(), file.getOriginalFilename());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    /**
+     * @return up to [length] first bytes of the file, read through its channel
+     */
+    public byte[] header(int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // reads until the buffer is full or the end of the file
+            }
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public File file() {
+        return path.toFile();
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String originalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
@@ -9,38 +9,58 @@ import com.anterka.bjyotish.dto.file.FileUploadRequest;
 import com.anterka.bjyotish.dto.file.FileUploadResponse;
 import com.anterka.bjyotish.entities.BjyotishUser;
 import com.anterka.bjyotish.entities.FileUpload;
+import com.anterka.bjyotish.service.file.FileValidationService;
+import com.anterka.bjyotish.service.file.SpooledUpload;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.Transformation;
 import com.cloudinary.utils.ObjectUtils;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tomcat.util.http.fileupload.FileUploadException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
+/**
+ * Uploads are spooled to disk, validated from their header and streamed to Cloudinary, the files above
+ * [cloud.upload.chunk-size] with the chunked upload API, so the heap used by an upload does not grow with the file size.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class CloudinaryService {
 
     private final Cloudinary cloudinary;
     private final FileUploadRepository fileUploadRepository;
+    private final FileValidationService fileValidationService;
+    private final Path spoolDirectory;
+    private final int chunkSize;
 
     private static final String BASE_FOLDER = "bhaskar_jyotish";
-    private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
     private static final Set<String> ALLOWED_IMAGE_TYPES = Set.of("image/jpeg", "image/png", "image/gif", "image/webp");
     private static final Set<String> ALLOWED_DOCUMENT_TYPES = Set.of("application/pdf", "application/msword",
             "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
     private static final Set<String> ALLOWED_AUDIO_TYPES = Set.of("audio/mpeg", "audio/wav", "audio/ogg");
     private static final Set<String> ALLOWED_VIDEO_TYPES = Set.of("video/mp4", "video/avi", "video/quicktime");
 
+    public CloudinaryService(Cloudinary cloudinary, FileUploadRepository fileUploadRepository,
+                             FileValidationService fileValidationService,
+                             @Value("${cloud.upload.spool-dir:${java.io.tmpdir}/bjyotish-uploads}") String spoolDirectory,
+                             @Value("${cloud.upload.chunk-size:6MB}") DataSize chunkSize) {
+        this.cloudinary = cloudinary;
+        this.fileUploadRepository = fileUploadRepository;
+        this.fileValidationService = fileValidationService;
+        this.spoolDirectory = Path.of(spoolDirectory);
+        this.chunkSize = Math.toIntExact(chunkSize.toBytes());
+    }
+
     /**
      * Upload single file to Cloudinary
      */
@@ -48,13 +68,15 @@ public class CloudinaryService {
     public FileUploadResponse uploadFile(FileUploadRequest request, BjyotishUser user) throws FileUploadException {
         validateFileUploadRequest(request);
 
-        try {
+        try (SpooledUpload upload = SpooledUpload.spool(request.getFile(), spoolDirectory)) {
+            fileValidationService.validateContent(upload, request.getFileType());
+
             // Create initial database record
             FileUpload fileUpload = createInitialFileRecord(request, user);
             fileUpload = fileUploadRepository.save(fileUpload);
 
             // Upload to Cloudinary
-            Map<String, Object> uploadResult = performCloudinaryUpload(request.getFile(), request.getFileType(), user.getId());
+            Map<String, Object> uploadResult = performCloudinaryUpload(upload, request.getFileType(), user.getId());
 
             // Update database record with Cloudinary response
             updateFileUploadWithCloudinaryData(fileUpload, uploadResult);
@@ -227,13 +249,14 @@ public class CloudinaryService {
             throw new FileUploadException("File is required");
         }
 
-        if (file.getSize() > MAX_FILE_SIZE) {
-            throw new FileUploadException("File size exceeds maximum limit of " + (MAX_FILE_SIZE / 1024 / 1024) + "MB");
-        }
-
         String contentType = file.getContentType();
         FileTypeEnum fileType = request.getFileType();
 
+        long maxFileSize = fileValidationService.maxFileSize(fileType);
+        if (file.getSize() > maxFileSize) {
+            throw new FileUploadException("File size exceeds maximum limit of " + (maxFileSize / 1024 / 1024) + "MB");
+        }
+
         validateFileTypeAndContent(contentType, fileType);
     }
 
@@ -281,26 +304,30 @@ public class CloudinaryService {
                 .build();
     }
 
-    private Map<String, Object> performCloudinaryUpload(MultipartFile file, FileTypeEnum fileType, Long userId) throws IOException, IOException {
+    private Map<String, Object> performCloudinaryUpload(SpooledUpload upload, FileTypeEnum fileType, Long userId) throws IOException {
         String folder = generateCloudinaryFolder(fileType, userId);
-        String publicId = generatePublicId(fileType, userId, file.getOriginalFilename());
+        String publicId = generatePublicId(fileType, userId, upload.originalFilename());
 
         Map<String, Object> uploadParams = ObjectUtils.asMap(
                 "folder", folder,
                 "public_id", publicId,
-                "resource_type", getResourceType(file.getContentType()),
+                "resource_type", getResourceType(upload.contentType()),
                 "use_filename", true,
                 "unique_filename", false,
                 "overwrite", false
         );
 
         // Add specific params based on file type
-        if (isImageType(file.getContentType())) {
+        if (isImageType(upload.contentType())) {
             uploadParams.put("quality", "auto");
             uploadParams.put("fetch_format", "auto");
         }
 
-        return cloudinary.uploader().upload(file.getBytes(), uploadParams);
+        // The file is streamed from disk, the chunked upload only buffers one chunk at a time
+        if (upload.size() > chunkSize) {
+            return cloudinary.uploader().uploadLarge(upload.file(), uploadParams, chunkSize);
+        }
+        return cloudinary.uploader().upload(upload.file(), uploadParams);
     }
 
     private void updateFileUploadWithCloudinaryData(FileUpload fileUpload, Map<String, Object> uploadResult) {
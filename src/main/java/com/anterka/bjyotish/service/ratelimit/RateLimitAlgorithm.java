@@ -0,0 +1,13 @@
+package com.anterka.bjyotish.service.ratelimit;
+
+/**
+ * Algorithms supported by the [RateLimitEngine]
+ * <ul>
+ *     <li>[TOKEN_BUCKET] : bursts up to the limit, refilled continuously at limit per window, O(1) memory per client</li>
+ *     <li>[SLIDING_LOG] : exactly limit requests within any window, one sorted set entry per request</li>
+ * </ul>
+ */
+public enum RateLimitAlgorithm {
+    TOKEN_BUCKET,
+    SLIDING_LOG
+}
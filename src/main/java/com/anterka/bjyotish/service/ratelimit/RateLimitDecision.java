@@ -0,0 +1,17 @@
+package com.anterka.bjyotish.service.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a rate limit check, carrying what the [RateLimit-*] response headers need
+ *
+ * @param remaining  requests still allowed right now
+ * @param retryAfter time until the next request can be allowed, zero when allowed
+ * @param reset      time until the quota is fully restored
+ */
+public record RateLimitDecision(boolean allowed, int limit, long remaining, Duration retryAfter, Duration reset) {
+
+    public boolean isLimited() {
+        return !allowed;
+    }
+}
@@ -0,0 +1,31 @@
+package com.anterka.bjyotish.service.ratelimit;
+
+import com.anterka.bjyotish.exception.RateLimitExceededException;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts a request of a [RateLimited] handler and publishes the outcome as [RateLimitHeaders]
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitEnforcer {
+
+    private final RateLimitEngine rateLimitEngine;
+
+    /**
+     * @throws RateLimitExceededException when the policy denies the request
+     */
+    public void enforce(String policy, RateLimitKey key, String identifier, HttpServletResponse response) {
+        RateLimitDecision decision = rateLimitEngine.check(policy, key.name().toLowerCase() + ":" + identifier);
+        if (decision.isLimited()) {
+            throw new RateLimitExceededException("Too many requests. Please try again later.", decision);
+        }
+        // the most restrictive of the keys is reported, they are checked in the order of the annotation
+        String remaining = response.getHeader(RateLimitHeaders.REMAINING);
+        if (remaining == null || Long.parseLong(remaining) > decision.remaining()) {
+            RateLimitHeaders.write(decision, response::setHeader);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.anterka.bjyotish.service.ratelimit;
+
+import com.anterka.bjyotish.service.redis.RedisLuaScript;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.JedisPooled;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the requests against their [RateLimitPolicy] with a single atomic Lua script per check.
+ * <ul>
+ *     <li>[TOKEN_BUCKET] : hash [rate_limit_bucket:policy:identifier], the bucket holds [limit] tokens and is refilled
+ *     continuously over [window], so short bursts are allowed while the average rate is bounded</li>
+ *     <li>[SLIDING_LOG] : sorted set [rate_limit_log:policy:identifier] of the allowed request times, at most [limit]
+ *     requests in any [window]</li>
+ * </ul>
+ * The scripts take the time from the Redis server so that the clock skew of the nodes does not matter.
+ * A denied client is remembered locally until it can be allowed again, its next requests are rejected without Redis.
+ */
+@Service
+public class RateLimitEngine {
+
+    private static final String TOKEN_BUCKET_PREFIX = "rate_limit_bucket:";
+    private static final String SLIDING_LOG_PREFIX = "rate_limit_log:";
+
+    /**
+     * ARGV : capacity, refill window in ms
+     * returns {allowed, remaining, retry after ms, reset ms}
+     */
+    private static final RedisLuaScript TOKEN_BUCKET = new RedisLuaScript("""
+            local capacity = tonumber(ARGV[1])
+            local window = tonumber(ARGV[2])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(bucket[1]) or capacity
+            local ts = tonumber(bucket[2]) or now
+            local rate = capacity / window
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate)
+            local allowed = 0
+            local retry = 0
+            if tokens >= 1 then
+                tokens = tokens - 1
+                allowed = 1
+            else
+                retry = math.ceil((1 - tokens) / rate)
+            end
+            local reset = math.ceil((capacity - tokens) / rate)
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', now)
+            redis.call('PEXPIRE', KEYS[1], math.max(reset, 1))
+            return {allowed, math.floor(tokens), retry, reset}
+            """);
+
+    /**
+     * ARGV : limit, window in ms, unique request id
+     * returns {allowed, remaining, retry after ms, reset ms}
+     */
+    private static final RedisLuaScript SLIDING_LOG = new RedisLuaScript("""
+            local limit = tonumber(ARGV[1])
+            local window = tonumber(ARGV[2])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)
+            local count = redis.call('ZCARD', KEYS[1])
+            local allowed = 0
+            local retry = 0
+            if count < limit then
+                redis.call('ZADD', KEYS[1], now, now .. ':' .. ARGV[3])
+                redis.call('PEXPIRE', KEYS[1], window)
+                count = count + 1
+                allowed = 1
+            else
+                local oldest = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+                retry = math.max(1, tonumber(oldest[2]) + window - now)
+            end
+            local newest = redis.call('ZRANGE', KEYS[1], -1, -1, 'WITHSCORES')
+            local reset = 0
+            if newest[2] then
+                reset = math.max(0, tonumber(newest[2]) + window - now)
+            end
+            return {allowed, limit - count, retry, reset}
+            """);
+
+    private final JedisPooled jedisPooled;
+    private final RateLimitPolicyRegistry policyRegistry;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, LocalBlock> localBlocks;
+
+    public RateLimitEngine(JedisPooled jedisPooled, RateLimitPolicyRegistry policyRegistry, MeterRegistry meterRegistry,
+                           @Value("${redis.app.rate-limit.local-block.max-size:100000}") long localBlockMaxSize) {
+        this.jedisPooled = jedisPooled;
+        this.policyRegistry = policyRegistry;
+        this.meterRegistry = meterRegistry;
+        this.localBlocks = Caffeine.newBuilder()
+                .maximumSize(localBlockMaxSize)
+                .expireAfter(new Expiry<String, LocalBlock>() {
+                    @Override
+                    public long expireAfterCreate(String key, LocalBlock block, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, block.retryAtMillis() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, LocalBlock block, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, block, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, LocalBlock block, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * counts the request of [identifier] against the policy, a denied request is not counted
+     */
+    public RateLimitDecision check(String policyName, String identifier) {
+        RateLimitPolicy policy = policyRegistry.get(policyName);
+        String key = policy.name() + ":" + identifier;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String source = "local";
+        RateLimitDecision decision = checkLocally(key, policy);
+        if (decision == null) {
+            source = "redis";
+            decision = checkInRedis(key, policy);
+            if (decision.isLimited()) {
+                long now = System.currentTimeMillis();
+                localBlocks.put(key, new LocalBlock(now + decision.retryAfter().toMillis(), now + decision.reset().toMillis()));
+            }
+        }
+        sample.stop(Timer.builder("bjyotish.rate-limit.check")
+                .description("Latency of the rate limit checks")
+                .tag("action", policyName)
+                .tag("limited", String.valueOf(decision.isLimited()))
+                .tag("source", source)
+                .register(meterRegistry));
+        return decision;
+    }
+
+    private RateLimitDecision checkLocally(String key, RateLimitPolicy policy) {
+        LocalBlock block = localBlocks.getIfPresent(key);
+        if (block == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (block.retryAtMillis() <= now) {
+            localBlocks.invalidate(key);
+            return null;
+        }
+        return new RateLimitDecision(false, policy.limit(), 0,
+                Duration.ofMillis(block.retryAtMillis() - now), Duration.ofMillis(Math.max(0, block.resetAtMillis() - now)));
+    }
+
+    private RateLimitDecision checkInRedis(String key, RateLimitPolicy policy) {
+        String window = String.valueOf(policy.window().toMillis());
+        Object result = switch (policy.algorithm()) {
+            case TOKEN_BUCKET -> TOKEN_BUCKET.eval(jedisPooled, List.of(TOKEN_BUCKET_PREFIX + key),
+                    List.of(String.valueOf(policy.limit()), window));
+            case SLIDING_LOG -> SLIDING_LOG.eval(jedisPooled, List.of(SLIDING_LOG_PREFIX + key),
+                    List.of(String.valueOf(policy.limit()), window, Long.toHexString(ThreadLocalRandom.current().nextLong())));
+        };
+        List<?> values = (List<?>) result;
+        return new RateLimitDecision(((Long) values.get(0)) == 1L, policy.limit(), (Long) values.get(1),
+                Duration.ofMillis((Long) values.get(2)), Duration.ofMillis((Long) values.get(3)));
+    }
+
+    /**
+     * the client is denied until [retryAtMillis]
+     */
+    private record LocalBlock(long retryAtMillis, long resetAtMillis) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.anterka.bjyotish.service.ratelimit;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.function.BiConsumer;
+
+/**
+ * The [RateLimit-Limit], [RateLimit-Remaining] and [RateLimit-Reset] response headers of the IETF rate limit draft,
+ * plus [Retry-After] when the request is denied. The durations are in whole seconds, rounded up.
+ */
+public final class RateLimitHeaders {
+
+    public static final String LIMIT = "RateLimit-Limit";
+    public static final String REMAINING = "RateLimit-Remaining";
+    public static final String RESET = "RateLimit-Reset";
+
+    public static void write(RateLimitDecision decision, BiConsumer<String, String> setHeader) {
+        setHeader.accept(LIMIT, String.valueOf(decision.limit()));
+        setHeader.accept(REMAINING, String.valueOf(Math.max(0, decision.remaining())));
+        setHeader.accept(RESET, String.valueOf(ceilSeconds(decision.reset())));
+        if (decision.isLimited()) {
+            setHeader.accept(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ceilSeconds(decision.retryAfter()))));
+        }
+    }
+
+    private static long ceilSeconds(Duration duration) {
+        return (duration.toMillis() + 999) / 1000;
+    }
+
+    private RateLimitHeaders() {
+    }
+}
@@ -0,0 +1,70 @@
+package com.anterka.bjyotish.service.ratelimit;
+
+import com.anterka.bjyotish.entities.BjyotishUser;
+import com.anterka.bjyotish.security.jwt.JwtUserPrincipal;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+
+/**
+ * Enforces the [IP] and [USER] keys of the [RateLimited] handlers before the request body is read or the handler
+ * runs, the [EMAIL] key is enforced by [RateLimitRequestBodyAdvice] once the body is parsed
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimitEnforcer rateLimitEnforcer;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        RateLimited rateLimited = findRateLimited(handlerMethod.getMethod(), handlerMethod.getBeanType());
+        if (rateLimited == null) {
+            return true;
+        }
+        for (RateLimitKey key : rateLimited.keys()) {
+            switch (key) {
+                case IP -> rateLimitEnforcer.enforce(rateLimited.policy(), key, request.getRemoteAddr(), response);
+                case USER -> enforcePerUser(rateLimited.policy(), request, response);
+                case EMAIL -> {
+                    // the body is not read yet
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * the annotation of the method wins over the one of the controller
+     */
+    static RateLimited findRateLimited(Method method, Class<?> controllerType) {
+        RateLimited rateLimited = AnnotatedElementUtils.findMergedAnnotation(method, RateLimited.class);
+        return rateLimited != null ? rateLimited : AnnotatedElementUtils.findMergedAnnotation(controllerType, RateLimited.class);
+    }
+
+    private void enforcePerUser(String policy, HttpServletRequest request, HttpServletResponse response) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || authentication instanceof AnonymousAuthenticationToken) {
+            rateLimitEnforcer.enforce(policy, RateLimitKey.IP, request.getRemoteAddr(), response);
+            return;
+        }
+        String userId = switch (authentication.getPrincipal()) {
+            case JwtUserPrincipal principal -> String.valueOf(principal.userId());
+            case BjyotishUser user -> String.valueOf(user.getId());
+            default -> authentication.getName();
+        };
+        rateLimitEnforcer.enforce(policy, RateLimitKey.USER, userId, response);
+    }
+}
@@ -0,0 +1,19 @@
+package com.anterka.bjyotish.service.ratelimit;
+
+/**
+ * What a [RateLimited] request is counted against
+ */
+public enum RateLimitKey {
+    /**
+     * the client address, checked before the handler is invoked
+     */
+    IP,
+    /**
+     * the id of the authenticated user, the client address for the anonymous requests
+     */
+    USER,
+    /**
+     * the email of an [EmailAddressedRequest] body, checked as soon as the body is read
+     */
+    EMAIL
+}
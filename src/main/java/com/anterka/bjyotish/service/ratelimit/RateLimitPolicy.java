@@ -0,0 +1,15 @@
+package com.anterka.bjyotish.service.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * Declarative limit of a rate limited action, e.g. [sliding_log:5/15m] allows 5 requests in any 15 minutes
+ */
+public record RateLimitPolicy(String name, RateLimitAlgorithm algorithm, int limit, Duration window) {
+
+    public RateLimitPolicy {
+        if (limit <= 0 || window.isZero() || window.isNegative()) {
+            throw new IllegalArgumentException(String.format("Invalid rate limit policy [%s] : %d/%s", name, limit, window));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.anterka.bjyotish.service.ratelimit;
+
+import com.anterka.bjyotish.config.RedisConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rate limit policies, parsed once at startup.
+ * The password flows keep their limits from [redis.app.rate-limit.*], any policy can be declared or overridden as
+ * <pre>
+ * redis.app.rate-limit.policies.[name]=[algorithm]:[limit]/[window]   e.g. token_bucket:10/1m, sliding_log:5/15m
+ * </pre>
+ * The actions without a policy fall back to the [default] policy.
+ */
+@Component
+public class RateLimitPolicyRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitPolicyRegistry.class);
+    private static final String POLICIES_PROPERTY = "redis.app.rate-limit.policies";
+    public static final String DEFAULT_POLICY = "default";
+
+    private final Map<String, RateLimitPolicy> policies = new HashMap<>();
+
+    public RateLimitPolicyRegistry(RedisConfig redisConfig, Environment environment) {
+        Duration window = Duration.ofMinutes(Integer.parseInt(redisConfig.getWindowMinutesRateLimit()));
+        register(new RateLimitPolicy(DEFAULT_POLICY, RateLimitAlgorithm.SLIDING_LOG, 5, window));
+        register(new RateLimitPolicy("forgot_password", RateLimitAlgorithm.SLIDING_LOG,
+                Integer.parseInt(redisConfig.getForgotPasswordRateLimit()), window));
+        register(new RateLimitPolicy("validate_token", RateLimitAlgorithm.SLIDING_LOG,
+                Integer.parseInt(redisConfig.getValidateTokenRateLimit()), window));
+        register(new RateLimitPolicy("reset_password", RateLimitAlgorithm.SLIDING_LOG,
+                Integer.parseInt(redisConfig.getResetPasswordRateLimit()), window));
+        register(new RateLimitPolicy("login", RateLimitAlgorithm.SLIDING_LOG, 10, window));
+        register(new RateLimitPolicy("resend_otp", RateLimitAlgorithm.SLIDING_LOG, 3, window));
+        register(new RateLimitPolicy("register", RateLimitAlgorithm.SLIDING_LOG, 5, window));
+        register(new RateLimitPolicy("file_upload", RateLimitAlgorithm.TOKEN_BUCKET, 30, Duration.ofMinutes(1)));
+
+        Binder.get(environment)
+                .bind(POLICIES_PROPERTY, Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of())
+                .forEach((name, spec) -> register(parse(name, spec)));
+        policies.values().forEach(policy -> log.info("Rate limit policy {}", policy));
+    }
+
+    /**
+     * @return the policy of the action, or the [default] policy
+     */
+    public RateLimitPolicy get(String name) {
+        RateLimitPolicy policy = policies.get(name);
+        return policy != null ? policy : policies.get(DEFAULT_POLICY);
+    }
+
+    private void register(RateLimitPolicy policy) {
+        policies.put(policy.name(), policy);
+    }
+
+    static RateLimitPolicy parse(String name, String spec) {
+        int algorithmEnd = spec.indexOf(':');
+        int limitEnd = spec.indexOf('/', algorithmEnd + 1);
+        if (algorithmEnd < 0 || limitEnd < 0) {
+            throw new IllegalArgumentException(String.format("Invalid rate limit policy [%s] : expected algorithm:limit/window but was [%s]", name, spec));
+        }
+        return new RateLimitPolicy(name,
+                RateLimitAlgorithm.valueOf(spec.substring(0, algorithmEnd).trim().toUpperCase(Locale.ROOT)),
+                Integer.parseInt(spec.substring(algorithmEnd + 1, limitEnd).trim()),
+                DurationStyle.detectAndParse(spec.substring(limitEnd + 1).trim()));
+    }
+}
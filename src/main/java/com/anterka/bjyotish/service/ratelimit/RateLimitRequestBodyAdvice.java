@@ -0,0 +1,57 @@
+package com.anterka.bjyotish.service.ratelimit;
+
+import com.anterka.bjyotish.dto.users.request.EmailAddressedRequest;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Enforces the [EMAIL] key of the [RateLimited] handlers as soon as their [EmailAddressedRequest] body is read,
+ * before the validation and the handler run
+ */
+@ControllerAdvice
+public class RateLimitRequestBodyAdvice extends RequestBodyAdviceAdapter {
+
+    private final RateLimitEnforcer rateLimitEnforcer;
+
+    public RateLimitRequestBodyAdvice(RateLimitEnforcer rateLimitEnforcer) {
+        this.rateLimitEnforcer = rateLimitEnforcer;
+    }
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        if (!EmailAddressedRequest.class.isAssignableFrom(methodParameter.getParameterType())) {
+            return false;
+        }
+        RateLimited rateLimited = findRateLimited(methodParameter);
+        return rateLimited != null && Arrays.asList(rateLimited.keys()).contains(RateLimitKey.EMAIL);
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        String email = ((EmailAddressedRequest) body).getEmail();
+        if (StringUtils.hasText(email)
+                && RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                && attributes.getResponse() != null) {
+            rateLimitEnforcer.enforce(findRateLimited(parameter).policy(), RateLimitKey.EMAIL,
+                    email.trim().toLowerCase(Locale.ROOT), attributes.getResponse());
+        }
+        return body;
+    }
+
+    private static RateLimited findRateLimited(MethodParameter methodParameter) {
+        return methodParameter.getMethod() == null ? null
+                : RateLimitInterceptor.findRateLimited(methodParameter.getMethod(), methodParameter.getContainingClass());
+    }
+}
@@ -0,0 +1,23 @@
+package com.anterka.bjyotish.service.ratelimit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Rate limits a controller method, or all the methods of a controller, with a policy of the [RateLimitPolicyRegistry].
+ * Every key is counted separately against the policy, e.g. [keys = {IP, EMAIL}] limits both a single client spraying
+ * many accounts and many clients hammering a single account.
+ * A denied request fails with [RateLimitExceededException] before the handler runs.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RateLimited {
+
+    String policy();
+
+    RateLimitKey[] keys() default RateLimitKey.IP;
+}
@@ -0,0 +1,150 @@
+package com.anterka.bjyotish.service.redis;
+
+import com.anterka.bjyotish.security.jwt.ParsedToken;
+import com.anterka.bjyotish.service.helper.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Denylist of the revoked access tokens, keyed by their [jti].
+ * <ul>
+ *     <li>every revoked token is kept in Redis as [access_token_denylist:jti] until the token would have expired anyway</li>
+ *     <li>a local Bloom filter answers the common "not revoked" case without a round trip to Redis,
+ *     only a possible hit is confirmed with an [EXISTS]</li>
+ *     <li>the revocations are published on [access_token_denylist], so the filter of every node learns about them at once</li>
+ *     <li>the filter is rebuilt from a [SCAN] periodically (dropping the expired entries) and after every reconnect of the subscriber</li>
+ * </ul>
+ */
+@Service
+public class AccessTokenDenylistService implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessTokenDenylistService.class);
+    private static final String DENYLIST_PREFIX = "access_token_denylist:";
+    private static final String DENYLIST_CHANNEL = "access_token_denylist";
+
+    private final JedisPooled jedisPooled;
+    private final long expectedRevocations;
+    private final double falsePositiveProbability;
+    private final long rebuildIntervalMinutes;
+
+    private final ScheduledExecutorService rebuildScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "token-denylist-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final RedisChannelSubscriber subscriber;
+
+    private volatile BloomFilter revokedTokenIds;
+    /**
+     * filter being rebuilt, the revocations arriving during the [SCAN] are recorded in both filters
+     */
+    private volatile BloomFilter rebuildingTokenIds;
+
+    public AccessTokenDenylistService(JedisPooled jedisPooled,
+                                      @Value("${jwt.security.denylist.expected-revocations:100000}") long expectedRevocations,
+                                      @Value("${jwt.security.denylist.false-positive-probability:0.001}") double falsePositiveProbability,
+                                      @Value("${jwt.security.denylist.rebuild-interval-minutes:60}") long rebuildIntervalMinutes) {
+        this.jedisPooled = jedisPooled;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.rebuildIntervalMinutes = rebuildIntervalMinutes;
+        this.revokedTokenIds = new BloomFilter(expectedRevocations, falsePositiveProbability);
+        // revocations published while the node was not subscribed are picked up from Redis
+        this.subscriber = new RedisChannelSubscriber(jedisPooled, DENYLIST_CHANNEL, this::addLocally,
+                () -> rebuildScheduler.execute(this::rebuildSafely));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        rebuildScheduler.scheduleWithFixedDelay(this::rebuildSafely, rebuildIntervalMinutes, rebuildIntervalMinutes, TimeUnit.MINUTES);
+        subscriber.start();
+    }
+
+    @Override
+    public void destroy() {
+        subscriber.stop();
+        rebuildScheduler.shutdownNow();
+    }
+
+    /**
+     * denylists the token for its remaining lifetime, the tokens without [jti] or already expired are ignored
+     */
+    public void revoke(ParsedToken token) {
+        revoke(token.getTokenId(), token.getExpiresAt());
+    }
+
+    /**
+     * denylists the token id until the given expiry of the token
+     */
+    public void revoke(String tokenId, Instant expiresAt) {
+        if (tokenId == null) {
+            return;
+        }
+        long remainingSeconds = Duration.between(Instant.now(), expiresAt).toSeconds();
+        if (remainingSeconds <= 0) {
+            return;
+        }
+        jedisPooled.setex(DENYLIST_PREFIX + tokenId, remainingSeconds, "1");
+        addLocally(tokenId);
+        jedisPooled.publish(DENYLIST_CHANNEL, tokenId);
+    }
+
+    /**
+     * @return true if the token was revoked, hits Redis only when the Bloom filter reports a possible match
+     */
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !revokedTokenIds.mightContain(tokenId)) {
+            return false;
+        }
+        return jedisPooled.exists(DENYLIST_PREFIX + tokenId);
+    }
+
+    private void addLocally(String tokenId) {
+        revokedTokenIds.add(tokenId);
+        BloomFilter rebuilding = rebuildingTokenIds;
+        if (rebuilding != null) {
+            rebuilding.add(tokenId);
+        }
+    }
+
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("Failed to rebuild the access token denylist filter: {}", e.getMessage());
+        } finally {
+            rebuildingTokenIds = null;
+        }
+    }
+
+    private synchronized void rebuild() {
+        BloomFilter rebuilt = new BloomFilter(expectedRevocations, falsePositiveProbability);
+        rebuildingTokenIds = rebuilt;
+        ScanParams scanParams = new ScanParams().match(DENYLIST_PREFIX + "*").count(1000);
+        String cursor = ScanParams.SCAN_POINTER_START;
+        long count = 0;
+        do {
+            ScanResult<String> page = jedisPooled.scan(cursor, scanParams);
+            for (String key : page.getResult()) {
+                rebuilt.add(key.substring(DENYLIST_PREFIX.length()));
+                count++;
+            }
+            cursor = page.getCursor();
+        } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+        revokedTokenIds = rebuilt;
+        log.debug("Rebuilt the access token denylist filter with {} revoked tokens", count);
+    }
+}
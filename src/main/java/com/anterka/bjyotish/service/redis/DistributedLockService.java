@@ -0,0 +1,60 @@
+package com.anterka.bjyotish.service.redis;
+
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.params.SetParams;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Lease based lock across the nodes, so that a scheduled job runs on a single node at a time.
+ * The lock is held under [lock:name] with a random owner token, it is released or extended only by its owner
+ * and it expires on its own if the owner dies.
+ */
+@Service
+@AllArgsConstructor
+public class DistributedLockService {
+
+    private static final String LOCK_PREFIX = "lock:";
+
+    private static final RedisLuaScript RELEASE_IF_OWNER = new RedisLuaScript("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """);
+
+    private static final RedisLuaScript EXTEND_IF_OWNER = new RedisLuaScript("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """);
+
+    private final JedisPooled jedisPooled;
+
+    /**
+     * @return the owner token when the lock was acquired, empty if another node holds it
+     */
+    public Optional<String> tryLock(String name, Duration leaseTime) {
+        String token = UUID.randomUUID().toString();
+        String result = jedisPooled.set(LOCK_PREFIX + name, token, SetParams.setParams().nx().px(leaseTime.toMillis()));
+        return "OK".equals(result) ? Optional.of(token) : Optional.empty();
+    }
+
+    /**
+     * @return false if the lease already expired and the lock is lost
+     */
+    public boolean extend(String name, String token, Duration leaseTime) {
+        Object extended = EXTEND_IF_OWNER.eval(jedisPooled, List.of(LOCK_PREFIX + name), List.of(token, String.valueOf(leaseTime.toMillis())));
+        return Long.valueOf(1L).equals(extended);
+    }
+
+    public void unlock(String name, String token) {
+        RELEASE_IF_OWNER.eval(jedisPooled, List.of(LOCK_PREFIX + name), List.of(token));
+    }
+}
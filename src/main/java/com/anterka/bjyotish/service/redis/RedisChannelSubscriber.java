@@ -0,0 +1,75 @@
+package com.anterka.bjyotish.service.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.JedisPubSub;
+
+import java.util.function.Consumer;
+
+/**
+ * Keeps a single channel subscription alive on a virtual thread, resubscribing after a lost connection.
+ * [onSubscribe] runs after every (re)subscription, so that the listeners can catch up on the messages
+ * published while the node was not subscribed.
+ */
+public class RedisChannelSubscriber {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisChannelSubscriber.class);
+    private static final long RESUBSCRIBE_DELAY_MILLIS = 1000;
+
+    private final JedisPooled jedisPooled;
+    private final String channel;
+    private final Consumer<String> onMessage;
+    private final Runnable onSubscribe;
+    private final JedisPubSub pubSub = new JedisPubSub() {
+        @Override
+        public void onMessage(String channel, String message) {
+            onMessage.accept(message);
+        }
+
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+            onSubscribe.run();
+        }
+    };
+
+    private volatile boolean running;
+
+    public RedisChannelSubscriber(JedisPooled jedisPooled, String channel, Consumer<String> onMessage, Runnable onSubscribe) {
+        this.jedisPooled = jedisPooled;
+        this.channel = channel;
+        this.onMessage = onMessage;
+        this.onSubscribe = onSubscribe;
+    }
+
+    public void start() {
+        running = true;
+        Thread.ofVirtual().name("redis-subscriber-" + channel).start(this::subscribe);
+    }
+
+    public void stop() {
+        running = false;
+        if (pubSub.isSubscribed()) {
+            pubSub.unsubscribe();
+        }
+    }
+
+    private void subscribe() {
+        while (running) {
+            try {
+                jedisPooled.subscribe(pubSub, channel);
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Subscription to the channel [{}] lost, resubscribing: {}", channel, e.getMessage());
+                try {
+                    Thread.sleep(RESUBSCRIBE_DELAY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.anterka.bjyotish.service.redis;
+
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Lua script executed with [EVALSHA], the script body is only sent again with [EVAL] when the server does not know it yet
+ * (first call, restart or [SCRIPT FLUSH]), so a call costs a single round trip with a small payload.
+ */
+public final class RedisLuaScript {
+
+    private final String script;
+    private final String sha1;
+
+    public RedisLuaScript(String script) {
+        this.script = script;
+        this.sha1 = sha1Hex(script);
+    }
+
+    public Object eval(JedisPooled jedisPooled, List<String> keys, List<String> args) {
+        try {
+            return jedisPooled.evalsha(sha1, keys, args);
+        } catch (JedisNoScriptException e) {
+            return jedisPooled.eval(script, keys, args);
+        }
+    }
+
+    /**
+     * binary variant, the bulk strings of the reply are returned as [byte[]] instead of being decoded as UTF-8
+     */
+    public Object evalBinary(JedisPooled jedisPooled, List<byte[]> keys, List<byte[]> args) {
+        try {
+            return jedisPooled.evalsha(sha1.getBytes(StandardCharsets.UTF_8), keys, args);
+        } catch (JedisNoScriptException e) {
+            return jedisPooled.eval(script.getBytes(StandardCharsets.UTF_8), keys, args);
+        }
+    }
+
+    private static String sha1Hex(String script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not supported by the JVM", e);
+        }
+    }
+}
@@ -1,40 +1,64 @@
 package com.anterka.bjyotish.service.redis;
 
+import com.anterka.bjyotish.service.OtpService;
 import com.anterka.bjyotish.service.helper.RegistrationData;
-import com.google.gson.Gson;
-import lombok.AllArgsConstructor;
+import com.anterka.bjyotish.service.redis.codec.RegistrationDataCodec;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import redis.clients.jedis.AbstractTransaction;
 import redis.clients.jedis.JedisPooled;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Pending registrations waiting for the email verification, stored as plain strings encoded by the
+ * configured [RegistrationDataCodec], so that no Redis module is needed
+ */
 @Service
-@AllArgsConstructor
 public class RegistrationCacheService {
 
     private final JedisPooled client;
-    private final Gson gson;
+    private final OtpService otpService;
+    private final List<RegistrationDataCodec> codecs;
+    private final RegistrationDataCodec codec;
 
     private static final String REGISTRATION_PREFIX = "registration_";
     private static final long REGISTRATION_VALIDITY_SECONDS = TimeUnit.HOURS.toSeconds(2);
 
-    public void saveRegistration(String email, RegistrationData registrationRequest) {
-        String key = REGISTRATION_PREFIX + email;
-        client.jsonSet(key, gson.toJson(registrationRequest));
-        client.expire(key, REGISTRATION_VALIDITY_SECONDS);
+    public RegistrationCacheService(JedisPooled client, OtpService otpService, List<RegistrationDataCodec> codecs,
+                                    @Value("${" + RegistrationDataCodec.CODEC_PROPERTY + ":binary}") String codecName) {
+        this.client = client;
+        this.otpService = otpService;
+        this.codecs = codecs;
+        this.codec = codecs.stream()
+                .filter(candidate -> candidate.name().equals(codecName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown registration codec [" + codecName + "]"));
     }
 
-    public Optional<RegistrationData> getRegistration(String email) {
-        String key = REGISTRATION_PREFIX + email;
-        Object jsonResult = client.jsonGet(key);
-        if (jsonResult == null) {
-            return Optional.empty();
+    /**
+     * stores the pending registration and its OTP in a single [MULTI], so that neither exists without the other
+     * @return the validity of the OTP in seconds
+     */
+    public long saveRegistrationWithOtp(String email, RegistrationData registrationData, String otp) {
+        try (AbstractTransaction transaction = client.multi()) {
+            otpService.saveOtp(transaction, email, otp);
+            transaction.setex(registrationKey(email), REGISTRATION_VALIDITY_SECONDS, codec.encode(registrationData));
+            transaction.exec();
         }
-        // Convert the JSON object to string first
-        String jsonStr = gson.toJson(jsonResult);
-        RegistrationData request = gson.fromJson(jsonStr, RegistrationData.class);
-        return Optional.ofNullable(request);
+        return OtpService.OTP_VALIDITY_SECONDS;
+    }
+
+    /**
+     * verifies and consumes the OTP and reads the pending registration in the same round trip,
+     * the registration is kept until the user is saved
+     */
+    public VerifiedRegistration verifyOtpAndGetRegistration(String email, String otp) {
+        OtpService.OtpVerification verification = otpService.verifyAndConsume(email, otp, registrationKey(email));
+        return new VerifiedRegistration(verification, decode(verification.companionValue()));
     }
 
     public boolean registrationExists(String email) {
@@ -46,4 +70,28 @@ public class RegistrationCacheService {
         String key = REGISTRATION_PREFIX + email;
         client.del(key);
     }
+
+    private static byte[] registrationKey(String email) {
+        return (REGISTRATION_PREFIX + email).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * the payload may have been written by another codec before a switch of [redis.app.registration.codec]
+     */
+    private Optional<RegistrationData> decode(byte[] payload) {
+        if (payload == null) {
+            return Optional.empty();
+        }
+        RegistrationDataCodec payloadCodec = codec.supports(payload) ? codec : codecs.stream()
+                .filter(candidate -> candidate.supports(payload))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No codec for the registration payload"));
+        return Optional.ofNullable(payloadCodec.decode(payload));
+    }
+
+    /**
+     * @param registrationData the pending registration, only read when the OTP was verified
+     */
+    public record VerifiedRegistration(OtpService.OtpVerification verification, Optional<RegistrationData> registrationData) {
+    }
 }
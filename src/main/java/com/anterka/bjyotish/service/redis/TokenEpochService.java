@@ -0,0 +1,87 @@
+package com.anterka.bjyotish.service.redis;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.JedisPooled;
+
+import java.time.Duration;
+
+/**
+ * Keeps a per-user revocation epoch in Redis.
+ * Every access token carries the epoch that was current when it was minted, bumping the
+ * epoch (password reset, suspension, logout from all devices ...) invalidates all previously issued tokens
+ * without a database lookup on the request path.
+ * <p>
+ * The epochs are cached locally for a short time, a bump is published on [token_epoch] so that the
+ * other nodes see it at once, the TTL only bounds the staleness when a message is lost.
+ */
+@Service
+public class TokenEpochService implements InitializingBean, DisposableBean {
+
+    private static final String TOKEN_EPOCH_PREFIX = "token_epoch:";
+    private static final String TOKEN_EPOCH_CHANNEL = "token_epoch";
+    private static final String MESSAGE_SEPARATOR = ":";
+
+    private final JedisPooled jedisPooled;
+    private final Cache<Long, Long> localEpochs;
+    private final RedisChannelSubscriber subscriber;
+
+    public TokenEpochService(JedisPooled jedisPooled,
+                             @Value("${jwt.security.token-epoch.cache.ttl-seconds:5}") long cacheTtlSeconds,
+                             @Value("${jwt.security.token-epoch.cache.max-size:100000}") long cacheMaxSize) {
+        this.jedisPooled = jedisPooled;
+        this.localEpochs = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
+        // the bumps published while the node was not subscribed are unknown, so the cache is dropped
+        this.subscriber = new RedisChannelSubscriber(jedisPooled, TOKEN_EPOCH_CHANNEL, this::onEpochMessage,
+                localEpochs::invalidateAll);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        subscriber.start();
+    }
+
+    @Override
+    public void destroy() {
+        subscriber.stop();
+    }
+
+    public long currentEpoch(Long userId) {
+        return localEpochs.get(userId, this::loadEpoch);
+    }
+
+    /**
+     * bumps the epoch of the user, revoking every access token issued so far on all the nodes
+     */
+    public long incrementEpoch(Long userId) {
+        long epoch = jedisPooled.incr(TOKEN_EPOCH_PREFIX + userId);
+        localEpochs.asMap().merge(userId, epoch, Math::max);
+        jedisPooled.publish(TOKEN_EPOCH_CHANNEL, userId + MESSAGE_SEPARATOR + epoch);
+        return epoch;
+    }
+
+    private long loadEpoch(Long userId) {
+        String epoch = jedisPooled.get(TOKEN_EPOCH_PREFIX + userId);
+        return epoch != null ? Long.parseLong(epoch) : 0L;
+    }
+
+    /**
+     * [userId:epoch], the epoch only moves forward so a late message never lowers the cached one
+     */
+    private void onEpochMessage(String message) {
+        int separator = message.indexOf(MESSAGE_SEPARATOR);
+        if (separator < 0) {
+            return;
+        }
+        Long userId = Long.valueOf(message.substring(0, separator));
+        long epoch = Long.parseLong(message.substring(separator + 1));
+        localEpochs.asMap().merge(userId, epoch, Math::max);
+    }
+}
@@ -0,0 +1,171 @@
+package com.anterka.bjyotish.service.redis.codec;
+
+import com.anterka.bjyotish.constants.enums.UserRoleEnum;
+import com.anterka.bjyotish.dto.users.request.AstrologerRegistrationRequest;
+import com.anterka.bjyotish.dto.users.request.BirthDetailsRequest;
+import com.anterka.bjyotish.dto.users.request.ClientRegistrationRequest;
+import com.anterka.bjyotish.dto.users.request.UserRegistrationRequest;
+import com.anterka.bjyotish.service.helper.RegistrationData;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Compact positional encoding of the [RegistrationData], decoded in a single pass without any reflection.
+ * The first byte is the schema version, a change of the fields gets a new version while the previous ones
+ * stay readable until the pending registrations written with them have expired.
+ * <pre>
+ * version 1 : role, email, phone, password, firstName, lastName, gender, acceptTerms, then
+ *             CLIENT     : hasBirthDetails [birthDate (epoch day), birthTime (nano of day), city, state, country,
+ *                          postalCode, birthLatitude, birthLongitude, timezone, isBirthTimeAccurate (0 null, 1 false, 2 true)]
+ *             ASTROLOGER : displayName
+ * </pre>
+ * The nullable strings and numbers are written as a presence flag followed by the value, the strings in modified UTF-8.
+ */
+@Component
+public class BinaryRegistrationDataCodec implements RegistrationDataCodec {
+
+    private static final byte VERSION_1 = 1;
+
+    @Override
+    public String name() {
+        return "binary";
+    }
+
+    @Override
+    public boolean supports(byte[] payload) {
+        return payload.length > 0 && payload[0] == VERSION_1;
+    }
+
+    @Override
+    public byte[] encode(RegistrationData registrationData) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            UserRegistrationRequest request = registrationData.getUserRegistrationRequest();
+            out.writeByte(VERSION_1);
+            out.writeUTF(registrationData.getUserRole().name());
+            writeString(out, request.getEmail());
+            writeString(out, request.getPhone());
+            writeString(out, request.getPassword());
+            writeString(out, request.getFirstName());
+            writeString(out, request.getLastName());
+            writeString(out, request.getGender());
+            out.writeBoolean(request.isAcceptTerms());
+            switch (request) {
+                case ClientRegistrationRequest client -> writeBirthDetails(out, client.getBirthDetails());
+                case AstrologerRegistrationRequest astrologer -> writeString(out, astrologer.getDisplayName());
+                default -> throw new IllegalArgumentException("Unsupported registration request " + request.getClass().getName());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public RegistrationData decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte version = in.readByte();
+            if (version != VERSION_1) {
+                throw new IllegalArgumentException("Unsupported registration data version " + version);
+            }
+            UserRoleEnum userRole = UserRoleEnum.valueOf(in.readUTF());
+            UserRegistrationRequest request = userRole == UserRoleEnum.ASTROLOGER
+                    ? new AstrologerRegistrationRequest() : new ClientRegistrationRequest();
+            request.setEmail(readString(in));
+            request.setPhone(readString(in));
+            request.setPassword(readString(in));
+            request.setFirstName(readString(in));
+            request.setLastName(readString(in));
+            request.setGender(readString(in));
+            request.setAcceptTerms(in.readBoolean());
+            switch (request) {
+                case ClientRegistrationRequest client -> client.setBirthDetails(readBirthDetails(in));
+                case AstrologerRegistrationRequest astrologer -> astrologer.setDisplayName(readString(in));
+                default -> throw new IllegalStateException();
+            }
+            return RegistrationData.builder()
+                    .userRole(userRole)
+                    .userRegistrationRequest(request)
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeBirthDetails(DataOutputStream out, BirthDetailsRequest birthDetails) throws IOException {
+        out.writeBoolean(birthDetails != null);
+        if (birthDetails == null) {
+            return;
+        }
+        writeLong(out, birthDetails.getBirthDate() != null ? birthDetails.getBirthDate().toEpochDay() : null);
+        writeLong(out, birthDetails.getBirthTime() != null ? birthDetails.getBirthTime().toNanoOfDay() : null);
+        writeString(out, birthDetails.getCity());
+        writeString(out, birthDetails.getState());
+        writeString(out, birthDetails.getCountry());
+        writeString(out, birthDetails.getPostalCode());
+        writeString(out, birthDetails.getBirthLatitude() != null ? birthDetails.getBirthLatitude().toPlainString() : null);
+        writeString(out, birthDetails.getBirthLongitude() != null ? birthDetails.getBirthLongitude().toPlainString() : null);
+        writeString(out, birthDetails.getTimezone());
+        Boolean isBirthTimeAccurate = birthDetails.getIsBirthTimeAccurate();
+        out.writeByte(isBirthTimeAccurate == null ? 0 : isBirthTimeAccurate ? 2 : 1);
+    }
+
+    private static BirthDetailsRequest readBirthDetails(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Long birthDate = readLong(in);
+        Long birthTime = readLong(in);
+        String city = readString(in);
+        String state = readString(in);
+        String country = readString(in);
+        String postalCode = readString(in);
+        String birthLatitude = readString(in);
+        String birthLongitude = readString(in);
+        String timezone = readString(in);
+        byte isBirthTimeAccurate = in.readByte();
+        return BirthDetailsRequest.builder()
+                .birthDate(birthDate != null ? LocalDate.ofEpochDay(birthDate) : null)
+                .birthTime(birthTime != null ? LocalTime.ofNanoOfDay(birthTime) : null)
+                .city(city)
+                .state(state)
+                .country(country)
+                .postalCode(postalCode)
+                .birthLatitude(birthLatitude != null ? new BigDecimal(birthLatitude) : null)
+                .birthLongitude(birthLongitude != null ? new BigDecimal(birthLongitude) : null)
+                .timezone(timezone)
+                .isBirthTimeAccurate(isBirthTimeAccurate == 0 ? null : isBirthTimeAccurate == 2)
+                .build();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+}
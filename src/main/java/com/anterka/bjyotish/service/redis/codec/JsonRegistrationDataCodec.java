@@ -0,0 +1,97 @@
+package com.anterka.bjyotish.service.redis.codec;
+
+import com.anterka.bjyotish.constants.enums.UserRoleEnum;
+import com.anterka.bjyotish.dto.users.request.AstrologerRegistrationRequest;
+import com.anterka.bjyotish.dto.users.request.ClientRegistrationRequest;
+import com.anterka.bjyotish.dto.users.request.UserRegistrationRequest;
+import com.anterka.bjyotish.service.helper.RegistrationData;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * [{"userRole":"CLIENT","userRegistrationRequest":{...}}], the role is written first so that the request is
+ * streamed straight into its concrete type, without building a tree or sniffing its fields
+ */
+@Component
+@RequiredArgsConstructor
+public class JsonRegistrationDataCodec implements RegistrationDataCodec {
+
+    private static final String USER_ROLE = "userRole";
+    private static final String USER_REGISTRATION_REQUEST = "userRegistrationRequest";
+
+    private final Gson gson;
+
+    @Override
+    public String name() {
+        return "json";
+    }
+
+    @Override
+    public boolean supports(byte[] payload) {
+        return payload.length > 0 && payload[0] == '{';
+    }
+
+    @Override
+    public byte[] encode(RegistrationData registrationData) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        try (JsonWriter writer = gson.newJsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            writer.name(USER_ROLE).value(registrationData.getUserRole().name());
+            writer.name(USER_REGISTRATION_REQUEST);
+            writeRequest(writer, registrationData.getUserRegistrationRequest());
+            writer.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public RegistrationData decode(byte[] payload) {
+        try (JsonReader reader = gson.newJsonReader(new InputStreamReader(new ByteArrayInputStream(payload), StandardCharsets.UTF_8))) {
+            UserRoleEnum userRole = null;
+            UserRegistrationRequest request = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case USER_ROLE -> userRole = UserRoleEnum.valueOf(reader.nextString());
+                    case USER_REGISTRATION_REQUEST -> {
+                        if (userRole == null) {
+                            throw new JsonParseException("[userRole] must precede [userRegistrationRequest]");
+                        }
+                        request = gson.getAdapter(requestType(userRole)).read(reader);
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return RegistrationData.builder()
+                    .userRole(userRole)
+                    .userRegistrationRequest(request)
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends UserRegistrationRequest> void writeRequest(JsonWriter writer, T request) throws IOException {
+        gson.getAdapter((Class<T>) request.getClass()).write(writer, request);
+    }
+
+    private static Class<? extends UserRegistrationRequest> requestType(UserRoleEnum userRole) {
+        return userRole == UserRoleEnum.ASTROLOGER ? AstrologerRegistrationRequest.class : ClientRegistrationRequest.class;
+    }
+}
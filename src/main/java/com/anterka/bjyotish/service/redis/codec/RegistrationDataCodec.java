@@ -0,0 +1,28 @@
+package com.anterka.bjyotish.service.redis.codec;
+
+import com.anterka.bjyotish.service.helper.RegistrationData;
+
+/**
+ * Serialized form of the pending registrations kept in Redis, selected with [redis.app.registration.codec].
+ * The payloads of all the codecs are told apart by their first byte, so that the registrations written before
+ * a switch of the codec can still be read.
+ * <ul>
+ *     <li>[binary] (default) : [BinaryRegistrationDataCodec], versioned compact fields</li>
+ *     <li>[json] : [JsonRegistrationDataCodec], plain JSON readable with redis-cli</li>
+ * </ul>
+ */
+public interface RegistrationDataCodec {
+
+    String CODEC_PROPERTY = "redis.app.registration.codec";
+
+    String name();
+
+    /**
+     * @return true if the payload was written by this codec
+     */
+    boolean supports(byte[] payload);
+
+    byte[] encode(RegistrationData registrationData);
+
+    RegistrationData decode(byte[] payload);
+}
@@ -0,0 +1,87 @@
+package com.anterka.bjyotish.service.session;
+
+import com.anterka.bjyotish.dao.UserSessionRepository;
+import com.anterka.bjyotish.entities.UserSession;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.params.SetParams;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * [SessionStore] reading and writing the [user_sessions] table synchronously
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = SessionStore.STORE_PROPERTY, havingValue = "jpa")
+public class JpaSessionStore implements SessionStore {
+
+    private final UserSessionRepository userSessionRepository;
+    private final JedisPooled jedisPooled;
+
+    /**
+     * The advisory lock makes the concurrent logins of the same user take turns, so the statement that
+     * follows it runs on a snapshot which already contains the sessions inserted by the previous login
+     */
+    @Override
+    @Transactional
+    public List<SessionRecord> create(SessionRecord session, int maxActiveSessions) {
+        userSessionRepository.lockSessionsOfUser(session.userId());
+        return userSessionRepository.insertSessionAndEvictBeyond(session.sessionId(), session.userId(),
+                        session.refreshTokenHash(), session.accessTokenId(), session.expiresAt(), session.ipAddress(),
+                        session.userAgent(), session.createdAt(), Math.max(0, maxActiveSessions - 1))
+                .stream()
+                .map(JpaSessionStore::toRecord)
+                .toList();
+    }
+
+    @Override
+    public Optional<SessionRecord> findActiveByRefreshTokenHash(byte[] refreshTokenHash) {
+        return userSessionRepository.findByRefreshTokenHashAndIsActiveTrue(refreshTokenHash).map(JpaSessionStore::toRecord);
+    }
+
+    @Override
+    public boolean rotate(SessionRecord session, SessionRecord rotated, Duration reuseDetectionWindow) {
+        int replaced = userSessionRepository.rotateRefreshToken(session.sessionId(), session.refreshTokenHash(),
+                rotated.refreshTokenHash(), rotated.accessTokenId(), rotated.updatedAt());
+        if (replaced == 0) {
+            return false;
+        }
+        jedisPooled.set(ROTATED_REFRESH_PREFIX + SessionRecordCodec.hex(session.refreshTokenHash()), SessionRecordCodec.index(session),
+                SetParams.setParams().px(reuseDetectionWindow.toMillis()));
+        return true;
+    }
+
+    @Override
+    public Optional<SessionRecord> findByRotatedRefreshTokenHash(byte[] refreshTokenHash) {
+        String index = jedisPooled.get(ROTATED_REFRESH_PREFIX + SessionRecordCodec.hex(refreshTokenHash));
+        if (index == null) {
+            return Optional.empty();
+        }
+        return userSessionRepository.findBySessionId(SessionRecordCodec.sessionIdOfIndex(index))
+                .filter(UserSession::isActive)
+                .map(JpaSessionStore::toRecord);
+    }
+
+    @Override
+    public boolean deactivate(SessionRecord session) {
+        return userSessionRepository.deactivateSession(session.sessionId(), Instant.now()) > 0;
+    }
+
+    @Override
+    public void deactivateAllForUser(Long userId) {
+        userSessionRepository.deactivateAllSessionsForUser(userId);
+    }
+
+    static SessionRecord toRecord(UserSession entity) {
+        return new SessionRecord(entity.getSessionId(), entity.getBjyotishUserId(), entity.getRefreshTokenHash(),
+                entity.getAccessTokenId(), entity.getExpiresAt(), entity.getCreatedAt(), entity.getUpdatedAt(),
+                entity.isActive(), entity.getIpAddress(), entity.getUserAgent());
+    }
+}
@@ -0,0 +1,290 @@
+package com.anterka.bjyotish.service.session;
+
+import com.anterka.bjyotish.dao.UserSessionRepository;
+import com.anterka.bjyotish.entities.UserSession;
+import com.anterka.bjyotish.service.redis.RedisLuaScript;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.AbstractTransaction;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.SetParams;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Redis-first [SessionStore], the hot tier of the sessions
+ * <ul>
+ *     <li>[user_sessions:userId] : hash of the active sessions of the user, keyed by the session id</li>
+ *     <li>[refresh_session:digest] : index from the refresh token digest to [userId:sessionId], expiring with the session</li>
+ *     <li>[revoked_session:sessionId] : tombstone of a deactivated session, expiring with the session</li>
+ *     <li>[revoked_sessions:userId] : time of the last deactivation of all the sessions of the user, kept for the refresh token lifetime</li>
+ * </ul>
+ * Only the active sessions are kept, every change is queued for the [SessionWriteBehind] in the same transaction.
+ * <p>
+ * A session missing from Redis (sessions created before the Redis store, a flushed or evicted Redis) is read through
+ * from [user_sessions] and stored back into Redis. The table lags behind Redis by the write-behind delay, so the
+ * tombstones keep a session deactivated in Redis from being read back as active before its deactivation is written behind.
+ * <p>
+ * Assumes a single Redis node (or a primary with replicas) : the scripts and transactions span the user hash, the
+ * refresh token indexes and the global write-behind queue, which land in different slots on Redis Cluster.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = SessionStore.STORE_PROPERTY, havingValue = "redis", matchIfMissing = true)
+public class RedisSessionStore implements SessionStore {
+
+    private static final String USER_SESSIONS_PREFIX = "user_sessions:";
+    private static final String REFRESH_SESSION_PREFIX = "refresh_session:";
+    private static final String REVOKED_SESSION_PREFIX = "revoked_session:";
+    private static final String REVOKED_SESSIONS_OF_USER_PREFIX = "revoked_sessions:";
+
+    /**
+     * Replaces the refresh token of the session only while the replaced one is still its current token,
+     * so that of two concurrent refreshes with the same token only one wins.
+     * <p>
+     * KEYS : user hash, write-behind queue, replaced token index, new token index, rotated token key <br>
+     * ARGV : session id, replaced token digest, encoded rotated session, index value, expires at (ms), reuse window (ms), upsert event prefix
+     */
+    private static final RedisLuaScript ROTATE = new RedisLuaScript("""
+            local current = redis.call('HGET', KEYS[1], ARGV[1])
+            if not current then
+                return 0
+            end
+            local start = string.find(current, '\\n', string.find(current, '\\n', 1, true) + 1, true) + 1
+            if string.sub(current, start, string.find(current, '\\n', start, true) - 1) ~= ARGV[2] then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[3])
+            redis.call('DEL', KEYS[3])
+            redis.call('SET', KEYS[4], ARGV[4], 'PXAT', ARGV[5])
+            redis.call('SET', KEYS[5], ARGV[4], 'PX', ARGV[6])
+            redis.call('LPUSH', KEYS[2], ARGV[7] .. ARGV[3])
+            return 1
+            """);
+
+    /**
+     * Stores the new session and deactivates the oldest active sessions beyond the limit in one atomic step,
+     * so the concurrent logins of the same user can not race past it. The expired sessions are pruned on the way.
+     * <p>
+     * KEYS : user hash, write-behind queue, refresh token index of the new session <br>
+     * ARGV : session id, encoded session, index value, expires at, now (ms), max active sessions, index prefix, upsert event prefix,
+ * tombstone prefix
+     * <p>
+     * The refresh token indexes and the tombstones of the evicted sessions are only known once the hash is read, so they are
+     * built from [ARGV[7]] and [ARGV[9]] inside the script instead of being declared in [KEYS]. This is only valid on a single Redis node,
+     * it breaks on Redis Cluster and with ACLs restricting the keys of the scripts.
+     * @return the encoded deactivated sessions
+     */
+    private static final RedisLuaScript CREATE_AND_EVICT = new RedisLuaScript("""
+            local function split(encoded)
+                local fields, start = {}, 1
+                for i = 1, 9 do
+                    local stop = string.find(encoded, '\\n', start, true)
+                    fields[i] = string.sub(encoded, start, stop - 1)
+                    start = stop + 1
+                end
+                fields[10] = string.sub(encoded, start)
+                return fields
+            end
+
+            local now = tonumber(ARGV[5])
+            local active = {}
+            local entries = redis.call('HGETALL', KEYS[1])
+            for i = 1, #entries, 2 do
+                local fields = split(entries[i + 1])
+                if tonumber(fields[5]) <= now then
+                    redis.call('HDEL', KEYS[1], entries[i])
+                else
+                    table.insert(active, { id = entries[i], createdAt = tonumber(fields[6]), fields = fields })
+                end
+            end
+            table.sort(active, function(a, b) return a.createdAt < b.createdAt end)
+
+            local evicted = {}
+            for i = 1, #active - tonumber(ARGV[6]) + 1 do
+                local session = active[i]
+                redis.call('HDEL', KEYS[1], session.id)
+                redis.call('DEL', ARGV[7] .. session.fields[3])
+                redis.call('SET', ARGV[9] .. session.id, '1', 'PXAT', session.fields[5])
+                session.fields[7] = ARGV[5]
+                session.fields[8] = '0'
+                local deactivated = table.concat(session.fields, '\\n')
+                redis.call('LPUSH', KEYS[2], ARGV[8] .. deactivated)
+                table.insert(evicted, deactivated)
+            end
+
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('SET', KEYS[3], ARGV[3], 'PXAT', ARGV[4])
+            -- all the sessions share the same lifetime, the newest one expires last
+            redis.call('PEXPIREAT', KEYS[1], ARGV[4])
+            redis.call('LPUSH', KEYS[2], ARGV[8] .. ARGV[2])
+            return evicted
+            """);
+
+    /**
+     * Stores a session read through from the table back into Redis, unless Redis already holds a newer snapshot of it
+     * or the session was deactivated in Redis after the snapshot was written behind.
+     * <p>
+     * KEYS : user hash, refresh token index, session tombstone, user tombstone <br>
+     * ARGV : session id, encoded session, index value, expires at (ms), created at (ms), now (ms)
+     * @return the encoded session as stored in Redis, nil if it was deactivated
+     */
+    private static final RedisLuaScript HYDRATE = new RedisLuaScript("""
+            local current = redis.call('HGET', KEYS[1], ARGV[1])
+            if current then
+                return current
+            end
+            if redis.call('EXISTS', KEYS[3]) == 1 then
+                return false
+            end
+            local revokedAt = redis.call('GET', KEYS[4])
+            if revokedAt and tonumber(revokedAt) >= tonumber(ARGV[5]) then
+                return false
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('SET', KEYS[2], ARGV[3], 'PXAT', ARGV[4])
+            local ttl = redis.call('PTTL', KEYS[1])
+            if ttl < 0 or tonumber(ARGV[6]) + ttl < tonumber(ARGV[4]) then
+                redis.call('PEXPIREAT', KEYS[1], ARGV[4])
+            end
+            return ARGV[2]
+            """);
+
+    private final JedisPooled jedisPooled;
+    private final UserSessionRepository userSessionRepository;
+
+    @Value("${jwt.security.refresh-token.expiration.time.in-days:30}")
+    private int refreshTokenExpirationInDays;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<SessionRecord> create(SessionRecord session, int maxActiveSessions) {
+        List<String> evicted = (List<String>) CREATE_AND_EVICT.eval(jedisPooled,
+                List.of(userKey(session.userId()), SessionWriteBehind.QUEUE_KEY, refreshKey(session.refreshTokenHash())),
+                List.of(session.sessionId().toString(),
+                        SessionRecordCodec.encode(session),
+                        SessionRecordCodec.index(session),
+                        String.valueOf(session.expiresAt().toEpochMilli()),
+                        String.valueOf(session.createdAt().toEpochMilli()),
+                        String.valueOf(maxActiveSessions),
+                        REFRESH_SESSION_PREFIX,
+                        SessionWriteBehind.UPSERT_EVENT_PREFIX,
+                        REVOKED_SESSION_PREFIX));
+        return evicted.stream().map(SessionRecordCodec::decode).toList();
+    }
+
+    @Override
+    public Optional<SessionRecord> findActiveByRefreshTokenHash(byte[] refreshTokenHash) {
+        Optional<SessionRecord> session = findByIndex(jedisPooled.get(refreshKey(refreshTokenHash)));
+        if (session.isEmpty()) {
+            session = userSessionRepository.findByRefreshTokenHashAndIsActiveTrue(refreshTokenHash)
+                    .map(JpaSessionStore::toRecord)
+                    .flatMap(this::hydrate);
+        }
+        return session.filter(found -> Arrays.equals(found.refreshTokenHash(), refreshTokenHash));
+    }
+
+    @Override
+    public boolean rotate(SessionRecord session, SessionRecord rotated, Duration reuseDetectionWindow) {
+        Object replaced = ROTATE.eval(jedisPooled,
+                List.of(userKey(session.userId()), SessionWriteBehind.QUEUE_KEY, refreshKey(session.refreshTokenHash()),
+                        refreshKey(rotated.refreshTokenHash()), ROTATED_REFRESH_PREFIX + SessionRecordCodec.hex(session.refreshTokenHash())),
+                List.of(session.sessionId().toString(),
+                        SessionRecordCodec.hex(session.refreshTokenHash()),
+                        SessionRecordCodec.encode(rotated),
+                        SessionRecordCodec.index(session),
+                        String.valueOf(rotated.expiresAt().toEpochMilli()),
+                        String.valueOf(reuseDetectionWindow.toMillis()),
+                        SessionWriteBehind.UPSERT_EVENT_PREFIX));
+        return Long.valueOf(1L).equals(replaced);
+    }
+
+    @Override
+    public Optional<SessionRecord> findByRotatedRefreshTokenHash(byte[] refreshTokenHash) {
+        String index = jedisPooled.get(ROTATED_REFRESH_PREFIX + SessionRecordCodec.hex(refreshTokenHash));
+        Optional<SessionRecord> session = findByIndex(index);
+        if (session.isEmpty() && index != null) {
+            session = userSessionRepository.findBySessionId(SessionRecordCodec.sessionIdOfIndex(index))
+                    .filter(UserSession::isActive)
+                    .map(JpaSessionStore::toRecord)
+                    .flatMap(this::hydrate);
+        }
+        return session;
+    }
+
+    @Override
+    public boolean deactivate(SessionRecord session) {
+        Response<Long> removed;
+        try (AbstractTransaction transaction = jedisPooled.multi()) {
+            removed = transaction.hdel(userKey(session.userId()), session.sessionId().toString());
+            transaction.del(refreshKey(session.refreshTokenHash()));
+            transaction.set(REVOKED_SESSION_PREFIX + session.sessionId(), "1",
+                    SetParams.setParams().pxAt(session.expiresAt().toEpochMilli()));
+            transaction.lpush(SessionWriteBehind.QUEUE_KEY, SessionWriteBehind.upsertEvent(session.deactivated(Instant.now())));
+            transaction.exec();
+        }
+        return removed.get() > 0;
+    }
+
+    /**
+     * drops the hash of the user, the leftover refresh token indexes point to no session anymore and simply expire.
+     * The sessions created up to now are not read through anymore, whatever the table still holds for them
+     */
+    @Override
+    public void deactivateAllForUser(Long userId) {
+        Instant now = Instant.now();
+        try (AbstractTransaction transaction = jedisPooled.multi()) {
+            transaction.del(userKey(userId));
+            transaction.set(REVOKED_SESSIONS_OF_USER_PREFIX + userId, String.valueOf(now.toEpochMilli()),
+                    SetParams.setParams().px(Duration.ofDays(refreshTokenExpirationInDays).toMillis()));
+            transaction.lpush(SessionWriteBehind.QUEUE_KEY, SessionWriteBehind.deactivateAllEvent(userId, now));
+            transaction.exec();
+        }
+    }
+
+    /**
+     * resolves an index value [userId:sessionId] to the active session
+     */
+    private Optional<SessionRecord> findByIndex(String index) {
+        if (index == null) {
+            return Optional.empty();
+        }
+        String encoded = jedisPooled.hget(userKey(SessionRecordCodec.userIdOfIndex(index)), SessionRecordCodec.sessionIdOfIndex(index).toString());
+        return Optional.ofNullable(encoded).map(SessionRecordCodec::decode);
+    }
+
+    /**
+     * stores the active, unexpired session read from the table back into Redis
+     * @return the session as now stored in Redis, empty if it was deactivated in the meantime
+     */
+    private Optional<SessionRecord> hydrate(SessionRecord session) {
+        if (session.isExpired()) {
+            return Optional.empty();
+        }
+        Object encoded = HYDRATE.eval(jedisPooled,
+                List.of(userKey(session.userId()), refreshKey(session.refreshTokenHash()),
+                        REVOKED_SESSION_PREFIX + session.sessionId(), REVOKED_SESSIONS_OF_USER_PREFIX + session.userId()),
+                List.of(session.sessionId().toString(),
+                        SessionRecordCodec.encode(session),
+                        SessionRecordCodec.index(session),
+                        String.valueOf(session.expiresAt().toEpochMilli()),
+                        String.valueOf(session.createdAt().toEpochMilli()),
+                        String.valueOf(System.currentTimeMillis())));
+        return Optional.ofNullable((String) encoded).map(SessionRecordCodec::decode);
+    }
+
+    private static String userKey(Long userId) {
+        return USER_SESSIONS_PREFIX + userId;
+    }
+
+    private static String refreshKey(byte[] refreshTokenHash) {
+        return REFRESH_SESSION_PREFIX + SessionRecordCodec.hex(refreshTokenHash);
+    }
+}
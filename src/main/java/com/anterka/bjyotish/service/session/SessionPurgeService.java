@@ -0,0 +1,121 @@
+package com.anterka.bjyotish.service.session;
+
+import com.anterka.bjyotish.dao.UserSessionRepository;
+import com.anterka.bjyotish.service.redis.DistributedLockService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Purges the expired sessions from [user_sessions] without a long running lock or a WAL spike : the expired rows
+ * are deleted in primary key ordered batches, pausing between the batches.
+ * Only one node runs the purge at a time, guarded by a [DistributedLockService] lease extended after every batch.
+ */
+@Service
+public class SessionPurgeService {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionPurgeService.class);
+    private static final String LOCK_NAME = "session_purge";
+
+    private final UserSessionRepository userSessionRepository;
+    private final DistributedLockService distributedLockService;
+    private final MeterRegistry meterRegistry;
+
+    private final Counter deletedRows;
+    private final AtomicLong currentRunDeletedRows = new AtomicLong();
+    private final AtomicLong lastCompletedRunEpochSeconds = new AtomicLong();
+
+    @Value("${jwt.security.cleanup.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${jwt.security.cleanup.pause-millis:200}")
+    private long pauseMillis;
+
+    @Value("${jwt.security.cleanup.lock-lease-seconds:120}")
+    private long lockLeaseSeconds;
+
+    public SessionPurgeService(UserSessionRepository userSessionRepository, DistributedLockService distributedLockService,
+                               MeterRegistry meterRegistry) {
+        this.userSessionRepository = userSessionRepository;
+        this.distributedLockService = distributedLockService;
+        this.meterRegistry = meterRegistry;
+        this.deletedRows = Counter.builder("bjyotish.session.purge.deleted")
+                .description("Expired sessions deleted by the purge")
+                .register(meterRegistry);
+        Gauge.builder("bjyotish.session.purge.current_run.deleted", currentRunDeletedRows, AtomicLong::get)
+                .description("Expired sessions deleted so far by the running purge")
+                .register(meterRegistry);
+        Gauge.builder("bjyotish.session.purge.last_completed", lastCompletedRunEpochSeconds, AtomicLong::get)
+                .description("Epoch seconds of the last completed purge")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the number of deleted rows, -1 when another node is running the purge
+     */
+    public long purgeExpiredSessions() {
+        Duration lease = Duration.ofSeconds(lockLeaseSeconds);
+        Optional<String> lockToken = distributedLockService.tryLock(LOCK_NAME, lease);
+        if (lockToken.isEmpty()) {
+            log.info("Expired session purge is already running on another node");
+            return -1;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "completed";
+        currentRunDeletedRows.set(0);
+        try {
+            Instant expiredTime = Instant.now();
+            outcome = deleteInBatches(expiredTime, lockToken.get(), lease);
+            if ("completed".equals(outcome)) {
+                lastCompletedRunEpochSeconds.set(Instant.now().getEpochSecond());
+            }
+            log.info("Expired session purge {} after deleting {} sessions", outcome, currentRunDeletedRows.get());
+            return currentRunDeletedRows.get();
+        } catch (RuntimeException e) {
+            outcome = "failed";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("bjyotish.session.purge.duration")
+                    .description("Duration of the expired session purge")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+            distributedLockService.unlock(LOCK_NAME, lockToken.get());
+        }
+    }
+
+    private String deleteInBatches(Instant expiredTime, String lockToken, Duration lease) {
+        long afterId = 0;
+        while (true) {
+            UserSessionRepository.PurgedBatch batch = userSessionRepository.deleteExpiredSessionsBatch(afterId, expiredTime, batchSize);
+            if (batch.getDeletedCount() == 0 || batch.getLastId() == null) {
+                return "completed";
+            }
+            afterId = batch.getLastId();
+            deletedRows.increment(batch.getDeletedCount());
+            currentRunDeletedRows.addAndGet(batch.getDeletedCount());
+            if (batch.getDeletedCount() < batchSize) {
+                return "completed";
+            }
+            if (!distributedLockService.extend(LOCK_NAME, lockToken, lease)) {
+                log.warn("Lost the session purge lock, stopping after {} sessions", currentRunDeletedRows.get());
+                return "lock_lost";
+            }
+            try {
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "interrupted";
+            }
+        }
+    }
+}
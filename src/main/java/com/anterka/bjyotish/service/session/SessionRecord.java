@@ -0,0 +1,34 @@
+package com.anterka.bjyotish.service.session;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Snapshot of a user session as kept by the [SessionStore], the refresh token is only known by its SHA-256 digest
+ */
+public record SessionRecord(UUID sessionId,
+                            Long userId,
+                            byte[] refreshTokenHash,
+                            UUID accessTokenId,
+                            Instant expiresAt,
+                            Instant createdAt,
+                            Instant updatedAt,
+                            boolean active,
+                            String ipAddress,
+                            String userAgent) {
+
+    public boolean isExpired() {
+        return expiresAt.isBefore(Instant.now());
+    }
+
+    /**
+     * the same session (token family) continued with a new refresh token and access token
+     */
+    public SessionRecord rotated(byte[] newRefreshTokenHash, UUID newAccessTokenId, Instant now) {
+        return new SessionRecord(sessionId, userId, newRefreshTokenHash, newAccessTokenId, expiresAt, createdAt, now, active, ipAddress, userAgent);
+    }
+
+    public SessionRecord deactivated(Instant now) {
+        return new SessionRecord(sessionId, userId, refreshTokenHash, accessTokenId, expiresAt, createdAt, now, false, ipAddress, userAgent);
+    }
+}
@@ -0,0 +1,70 @@
+package com.anterka.bjyotish.service.session;
+
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Compact line based encoding of a [SessionRecord] for the Redis hash values and the write-behind queue.
+ * The fields are separated by a new line, which can appear neither in an IP address nor in an HTTP header value.
+ * The Lua scripts of the [RedisSessionStore] rely on the field order : 3 refresh token hash, 5 expires at,
+ * 6 created at, 7 updated at, 8 active.
+ */
+final class SessionRecordCodec {
+
+    private static final char SEPARATOR = '\n';
+    private static final char INDEX_SEPARATOR = ':';
+    private static final HexFormat HEX = HexFormat.of();
+
+    private SessionRecordCodec() {
+    }
+
+    static String encode(SessionRecord session) {
+        return new StringBuilder(256)
+                .append(session.sessionId()).append(SEPARATOR)
+                .append(session.userId()).append(SEPARATOR)
+                .append(HEX.formatHex(session.refreshTokenHash())).append(SEPARATOR)
+                .append(session.accessTokenId() != null ? session.accessTokenId().toString() : "").append(SEPARATOR)
+                .append(session.expiresAt().toEpochMilli()).append(SEPARATOR)
+                .append(session.createdAt().toEpochMilli()).append(SEPARATOR)
+                .append(session.updatedAt().toEpochMilli()).append(SEPARATOR)
+                .append(session.active() ? '1' : '0').append(SEPARATOR)
+                .append(session.ipAddress() != null ? session.ipAddress() : "").append(SEPARATOR)
+                .append(session.userAgent() != null ? session.userAgent() : "")
+                .toString();
+    }
+
+    static SessionRecord decode(String encoded) {
+        String[] fields = encoded.split(String.valueOf(SEPARATOR), 10);
+        return new SessionRecord(
+                UUID.fromString(fields[0]),
+                Long.valueOf(fields[1]),
+                HEX.parseHex(fields[2]),
+                fields[3].isEmpty() ? null : UUID.fromString(fields[3]),
+                Instant.ofEpochMilli(Long.parseLong(fields[4])),
+                Instant.ofEpochMilli(Long.parseLong(fields[5])),
+                Instant.ofEpochMilli(Long.parseLong(fields[6])),
+                "1".equals(fields[7]),
+                fields[8].isEmpty() ? null : fields[8],
+                fields[9].isEmpty() ? null : fields[9]);
+    }
+
+    static String hex(byte[] refreshTokenHash) {
+        return HEX.formatHex(refreshTokenHash);
+    }
+
+    /**
+     * value of the refresh token indexes [refresh_session] and [rotated_refresh], shared by both stores
+     */
+    static String index(SessionRecord session) {
+        return session.userId() + String.valueOf(INDEX_SEPARATOR) + session.sessionId();
+    }
+
+    static Long userIdOfIndex(String index) {
+        return Long.valueOf(index.substring(0, index.indexOf(INDEX_SEPARATOR)));
+    }
+
+    static UUID sessionIdOfIndex(String index) {
+        return UUID.fromString(index.substring(index.indexOf(INDEX_SEPARATOR) + 1));
+    }
+}
@@ -0,0 +1,46 @@
+package com.anterka.bjyotish.service.session;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage of the refresh token sessions, selected with [jwt.security.session.store].
+ * The recently rotated refresh tokens are tracked in Redis as [rotated_refresh:digest] by both the stores.
+ * <ul>
+ *     <li>[redis] (default) : [RedisSessionStore], a hash per user as the hot tier with write-behind to [user_sessions]</li>
+ *     <li>[jpa] : [JpaSessionStore], reads and writes [user_sessions] synchronously</li>
+ * </ul>
+ */
+public interface SessionStore {
+
+    String STORE_PROPERTY = "jwt.security.session.store";
+    String ROTATED_REFRESH_PREFIX = "rotated_refresh:";
+
+    /**
+     * stores the new session and deactivates the oldest active sessions of the user beyond [maxActiveSessions]
+     * @return the sessions deactivated to make room for the new one
+     */
+    List<SessionRecord> create(SessionRecord session, int maxActiveSessions);
+
+    Optional<SessionRecord> findActiveByRefreshTokenHash(byte[] refreshTokenHash);
+
+    /**
+     * replaces the refresh token of the session with the one of [rotated], the digest of the replaced token is
+     * remembered for [reuseDetectionWindow] so that a replay of it can be traced back to the session
+     * @return false if the refresh token of the session was already replaced or the session is not active anymore
+     */
+    boolean rotate(SessionRecord session, SessionRecord rotated, Duration reuseDetectionWindow);
+
+    /**
+     * @return the active session whose refresh token was recently rotated away from the given one
+     */
+    Optional<SessionRecord> findByRotatedRefreshTokenHash(byte[] refreshTokenHash);
+
+    /**
+     * @return false if the session was not active anymore
+     */
+    boolean deactivate(SessionRecord session);
+
+    void deactivateAllForUser(Long userId);
+}
@@ -0,0 +1,278 @@
+package com.anterka.bjyotish.service.session;
+
+import com.anterka.bjyotish.service.redis.RedisLuaScript;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Persists the session changes of the [RedisSessionStore] to the [user_sessions] table for the audit.
+ * The changes are queued in the Redis list [session_write_behind] within the same transaction as the
+ * session itself and applied here in batches, so neither the login nor the refresh waits for Postgres.
+ * <p>
+ * Every node drains the queue, so the events of a user may be applied out of order or twice by different nodes :
+ * <ul>
+ *     <li>an upsert only overwrites an older snapshot ([updated_at]) and never reactivates a session</li>
+ *     <li>deactivating all the sessions of a user also records the time in [bjyotish_users.sessions_revoked_at], a session
+ *     created up to then is inserted inactive when its upsert is applied only afterwards</li>
+ *     <li>a batch locks the rows of its users in the id order first, so that two batches of the same user take turns and
+ *     one of them always sees the revocation or the session committed by the other</li>
+ * </ul>
+ * <p>
+ * A batch is moved atomically into the processing list [session_write_behind:processing:node] of the node and only
+ * removed from it once committed. The node refreshes its heartbeat [session_write_behind:heartbeat:node] on every flush,
+ * the processing lists of the nodes without a heartbeat (crashed or restarted) are moved back to the queue, at startup
+ * and then periodically, so no change is lost between the pop and the commit.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = SessionStore.STORE_PROPERTY, havingValue = "redis", matchIfMissing = true)
+public class SessionWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionWriteBehind.class);
+
+    static final String QUEUE_KEY = "session_write_behind";
+    private static final char UPSERT = 'U';
+    private static final char DEACTIVATE_ALL = 'A';
+    static final String UPSERT_EVENT_PREFIX = UPSERT + "\n";
+    private static final String PROCESSING_PREFIX = QUEUE_KEY + ":processing:";
+    private static final String HEARTBEAT_PREFIX = QUEUE_KEY + ":heartbeat:";
+
+    /**
+     * KEYS : the queue, the processing list of the node, the heartbeat of the node
+     * ARGV : batch size, heartbeat TTL in seconds
+     * moves the oldest events of the queue into the processing list and returns them, oldest first
+     */
+    private static final RedisLuaScript CLAIM = new RedisLuaScript("""
+            redis.call('SET', KEYS[3], '1', 'EX', ARGV[2])
+            local events = redis.call('RPOP', KEYS[1], ARGV[1])
+            if not events then
+                return {}
+            end
+            redis.call('RPUSH', KEYS[2], unpack(events))
+            return events
+            """);
+
+    /**
+     * KEYS : the processing list, the queue
+     * moves the events back to the consuming end of the queue, so that they are retried first and in the same order
+     */
+    private static final RedisLuaScript REQUEUE = new RedisLuaScript("""
+            local moved = 0
+            while redis.call('LMOVE', KEYS[1], KEYS[2], 'RIGHT', 'RIGHT') do
+                moved = moved + 1
+            end
+            return moved
+            """);
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO user_sessions (session_id, bjyotish_user_id, refresh_token_hash, access_token_id, expires_at,
+                                       is_active, ip_address, user_agent, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?,
+                    ? AND NOT EXISTS (SELECT 1 FROM bjyotish_users u WHERE u.id = ? AND u.sessions_revoked_at >= ?),
+                    CAST(? AS INET), ?, ?, ?)
+            ON CONFLICT (session_id) DO UPDATE SET
+                refresh_token_hash = EXCLUDED.refresh_token_hash,
+                access_token_id = EXCLUDED.access_token_id,
+                expires_at = EXCLUDED.expires_at,
+                is_active = user_sessions.is_active AND EXCLUDED.is_active,
+                ip_address = EXCLUDED.ip_address,
+                user_agent = EXCLUDED.user_agent,
+                updated_at = EXCLUDED.updated_at
+            WHERE user_sessions.updated_at <= EXCLUDED.updated_at
+            """;
+
+    private static final String DEACTIVATE_ALL_SQL =
+            "UPDATE user_sessions SET is_active = false, updated_at = ? WHERE bjyotish_user_id = ? AND is_active AND created_at <= ?";
+
+    private static final String RECORD_REVOCATION_SQL =
+            "UPDATE bjyotish_users SET sessions_revoked_at = GREATEST(sessions_revoked_at, ?) WHERE id = ?";
+
+    private static final String LOCK_USERS_SQL =
+            "SELECT id FROM bjyotish_users WHERE id = ANY(?) ORDER BY id FOR NO KEY UPDATE";
+
+    private final JedisPooled jedisPooled;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${jwt.security.session.write-behind.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * must exceed the time taken by a batch, an expired heartbeat has the batch of the node applied again
+     */
+    @Value("${jwt.security.session.write-behind.heartbeat-ttl-seconds:60}")
+    private int heartbeatTtlSeconds;
+
+    static String upsertEvent(SessionRecord session) {
+        return UPSERT_EVENT_PREFIX + SessionRecordCodec.encode(session);
+    }
+
+    static String deactivateAllEvent(Long userId, Instant at) {
+        return DEACTIVATE_ALL + "\n" + userId + "\n" + at.toEpochMilli();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.security.session.write-behind.flush-interval-millis:1000}")
+    public void flush() {
+        String processingKey = PROCESSING_PREFIX + nodeId;
+        List<String> events;
+        do {
+            events = claim(processingKey);
+            if (events.isEmpty()) {
+                return;
+            }
+            try {
+                List<String> batch = events;
+                transactionTemplate.executeWithoutResult(status -> apply(batch));
+                jedisPooled.del(processingKey);
+                flushedEvents().increment(batch.size());
+            } catch (DataIntegrityViolationException e) {
+                if (!applyIndividually(events, processingKey)) {
+                    return;
+                }
+            } catch (Exception e) {
+                log.error("Failed to write behind {} session changes, re-queueing them", events.size(), e);
+                requeue(processingKey);
+                return;
+            }
+        } while (events.size() == batchSize);
+    }
+
+    /**
+     * moves the processing lists left by the nodes which stopped before acknowledging their batch back to the queue
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${jwt.security.session.write-behind.recovery-interval-millis:60000}")
+    public void recoverOrphanedBatches() {
+        ScanParams scanParams = new ScanParams().match(PROCESSING_PREFIX + "*").count(100);
+        String cursor = ScanParams.SCAN_POINTER_START;
+        do {
+            ScanResult<String> page = jedisPooled.scan(cursor, scanParams);
+            for (String processingKey : page.getResult()) {
+                String owner = processingKey.substring(PROCESSING_PREFIX.length());
+                if (!owner.equals(nodeId) && !jedisPooled.exists(HEARTBEAT_PREFIX + owner)) {
+                    long moved = requeue(processingKey);
+                    if (moved > 0) {
+                        log.warn("Re-queued {} session changes left unacknowledged by the node {}", moved, owner);
+                    }
+                }
+            }
+            cursor = page.getCursor();
+        } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> claim(String processingKey) {
+        return (List<String>) CLAIM.eval(jedisPooled, List.of(QUEUE_KEY, processingKey, HEARTBEAT_PREFIX + nodeId),
+                List.of(String.valueOf(batchSize), String.valueOf(heartbeatTtlSeconds)));
+    }
+
+    /**
+     * locks the users of the batch, then applies the events in their queue order, the consecutive upserts are sent
+     * as a single JDBC batch
+     */
+    private void apply(List<String> events) {
+        List<SessionRecord> sessions = new ArrayList<>(events.size());
+        Set<Long> userIds = new TreeSet<>();
+        for (String event : events) {
+            SessionRecord session = event.charAt(0) == UPSERT ? SessionRecordCodec.decode(event.substring(2)) : null;
+            sessions.add(session);
+            userIds.add(session != null ? session.userId() : Long.valueOf(event.substring(2, event.indexOf('\n', 2))));
+        }
+        jdbcTemplate.queryForList(LOCK_USERS_SQL, Long.class, (Object) userIds.toArray(Long[]::new));
+
+        List<Object[]> upserts = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            String event = events.get(i);
+            if (event.charAt(0) == UPSERT) {
+                upserts.add(upsertArgs(sessions.get(i)));
+            } else if (event.charAt(0) == DEACTIVATE_ALL) {
+                executeUpserts(upserts);
+                String[] fields = event.substring(2).split("\n");
+                Long userId = Long.valueOf(fields[0]);
+                Timestamp at = Timestamp.from(Instant.ofEpochMilli(Long.parseLong(fields[1])));
+                jdbcTemplate.update(RECORD_REVOCATION_SQL, at, userId);
+                jdbcTemplate.update(DEACTIVATE_ALL_SQL, at, userId, at);
+            }
+        }
+        executeUpserts(upserts);
+    }
+
+    /**
+     * a rejected row must not block the queue, the events are retried one by one and the rejected ones are dropped,
+     * each event is acknowledged once applied or dropped
+     * @return false if the remaining events were re-queued after a failure
+     */
+    private boolean applyIndividually(List<String> events, String processingKey) {
+        for (String event : events) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(List.of(event)));
+                flushedEvents().increment();
+            } catch (DataIntegrityViolationException e) {
+                log.error("Dropping the session change rejected by the database: {}", e.getMessage());
+            } catch (Exception e) {
+                log.error("Failed to write behind the session changes, re-queueing them", e);
+                requeue(processingKey);
+                return false;
+            }
+            jedisPooled.lrem(processingKey, 1, event);
+        }
+        return true;
+    }
+
+    private void executeUpserts(List<Object[]> upserts) {
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+            upserts.clear();
+        }
+    }
+
+    private Object[] upsertArgs(SessionRecord session) {
+        return new Object[]{
+                session.sessionId(),
+                session.userId(),
+                session.refreshTokenHash(),
+                session.accessTokenId(),
+                Timestamp.from(session.expiresAt()),
+                session.active(),
+                session.userId(),
+                Timestamp.from(session.createdAt()),
+                session.ipAddress(),
+                session.userAgent(),
+                Timestamp.from(session.createdAt()),
+                Timestamp.from(session.updatedAt())
+        };
+    }
+
+    private long requeue(String processingKey) {
+        return (Long) REQUEUE.eval(jedisPooled, List.of(processingKey, QUEUE_KEY), List.of());
+    }
+
+    private Counter flushedEvents() {
+        return Counter.builder("bjyotish.session.write_behind.flushed")
+                .description("Session changes written behind to the user_sessions table")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,30 @@
+-- ==============================================
+-- USER SESSIONS KEYED BY TOKEN DIGESTS
+-- ==============================================
+
+-- The raw refresh token is replaced by its fixed width SHA-256 digest and the
+-- access token (JWT) itself is no longer stored, only its jti is kept for the revocation on logout.
+
+ALTER TABLE user_sessions ADD COLUMN refresh_token_hash BYTEA;
+ALTER TABLE user_sessions ADD COLUMN access_token_id UUID;
+
+-- Backfill the digests of the existing refresh tokens
+UPDATE user_sessions
+SET refresh_token_hash = sha256(convert_to(refresh_token, 'UTF8'))
+WHERE refresh_token IS NOT NULL;
+
+-- Sessions without a refresh token can never be refreshed, nothing references them
+DELETE FROM user_sessions WHERE refresh_token_hash IS NULL;
+
+ALTER TABLE user_sessions ALTER COLUMN refresh_token_hash SET NOT NULL;
+
+-- Dropping the columns also drops their UNIQUE constraints
+DROP INDEX IF EXISTS idx_user_sessions_token;
+DROP INDEX IF EXISTS idx_user_sessions_refresh_token;
+ALTER TABLE user_sessions DROP COLUMN session_token;
+ALTER TABLE user_sessions DROP COLUMN refresh_token;
+
+-- Single index for the refresh token lookups, only the active sessions can be refreshed
+CREATE UNIQUE INDEX idx_user_sessions_active_refresh_token_hash
+    ON user_sessions(refresh_token_hash)
+    WHERE is_active;
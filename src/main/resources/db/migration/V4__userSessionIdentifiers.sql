@@ -0,0 +1,14 @@
+-- ==============================================
+-- STABLE USER SESSION IDENTIFIERS
+-- ==============================================
+
+-- Sessions are created in Redis first and written behind to this table, the session_id is
+-- generated by the application so that the deferred writes can be applied as upserts.
+
+ALTER TABLE user_sessions ADD COLUMN session_id UUID;
+
+UPDATE user_sessions SET session_id = gen_random_uuid() WHERE session_id IS NULL;
+
+ALTER TABLE user_sessions ALTER COLUMN session_id SET NOT NULL;
+
+CREATE UNIQUE INDEX idx_user_sessions_session_id ON user_sessions(session_id);
@@ -0,0 +1,36 @@
+-- ==============================================
+-- EMAIL OUTBOX
+-- ==============================================
+
+-- The mails are enqueued here by the request threads (within their transaction when they have one)
+-- and delivered by the outbox worker, which claims the due rows with FOR UPDATE SKIP LOCKED so that
+-- several nodes can drain the table concurrently.
+
+CREATE SEQUENCE seq_email_outbox_id
+    INCREMENT 1
+    START 1
+    MINVALUE 1
+    NO MAXVALUE
+    CACHE 1;
+
+CREATE TABLE email_outbox (
+    id BIGINT DEFAULT nextval('seq_email_outbox_id') PRIMARY KEY,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    is_html BOOLEAN NOT NULL DEFAULT FALSE,
+
+    -- PENDING -> SENDING -> SENT, or back to PENDING with a backoff, or DEAD once the attempts are exhausted
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    -- a SENDING row whose lease expired (crashed worker) is claimed again
+    locked_until TIMESTAMP WITH TIME ZONE,
+    last_error TEXT,
+
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX idx_email_outbox_pending ON email_outbox(next_attempt_at) WHERE status = 'PENDING';
+CREATE INDEX idx_email_outbox_sending ON email_outbox(locked_until) WHERE status = 'SENDING';
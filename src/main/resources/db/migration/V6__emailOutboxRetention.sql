@@ -0,0 +1,12 @@
+-- ==============================================
+-- EMAIL OUTBOX RETENTION
+-- ==============================================
+
+-- The bodies carry OTPs and password reset links, they are cleared once the mail is sent
+-- and the SENT and DEAD rows are purged after the retention period by the cleanup scheduler.
+
+ALTER TABLE email_outbox ALTER COLUMN body DROP NOT NULL;
+
+UPDATE email_outbox SET body = NULL WHERE status = 'SENT';
+
+CREATE INDEX idx_email_outbox_finished ON email_outbox(created_at) WHERE status IN ('SENT', 'DEAD');
@@ -0,0 +1,8 @@
+-- ==============================================
+-- USER SESSIONS REVOCATION WATERMARK
+-- ==============================================
+
+-- Time of the last deactivation of all the sessions of the user, written behind by the session store.
+-- A session created up to then and written behind only afterwards is stored inactive.
+
+ALTER TABLE bjyotish_users ADD COLUMN sessions_revoked_at TIMESTAMP WITH TIME ZONE;
@@ -0,0 +1,228 @@
+package com.anterka.bjyotish.dao;
+
+import com.anterka.bjyotish.service.helper.TokenDigest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login (insert) and refresh (token rotation) throughput of [user_sessions] preloaded with 10M sessions, with the
+ * schema before V3 (JWT and raw refresh token, each with a UNIQUE constraint and an extra B-tree) against the
+ * digest schema of V3/V4 (fixed width digest behind one partial unique index). Each schema lives in its own
+ * [bench_user_sessions_*] table without the foreign key to the users, recreated and preloaded for every trial.
+ * <pre>
+ * mvn test-compile
+ * java -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/bjyotish -Dbenchmark.jdbc.user=... -Dbenchmark.jdbc.password=... \
+ *     -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.anterka.bjyotish.dao.UserSessionWriteBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Threads(8)
+@Fork(1)
+public class UserSessionWriteBenchmark {
+
+    private static final String JDBC_URL = System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/bjyotish");
+    private static final String JDBC_USER = System.getProperty("benchmark.jdbc.user", "postgres");
+    private static final String JDBC_PASSWORD = System.getProperty("benchmark.jdbc.password", "postgres");
+
+    /**
+     * the JWT used to be stored whole, the generated ones are about this long
+     */
+    private static final int JWT_LENGTH = 200;
+
+    @State(Scope.Benchmark)
+    public static class Sessions {
+
+        @Param({"legacy", "digest"})
+        String schema;
+
+        @Param({"10000000"})
+        int rows;
+
+        String table;
+
+        /**
+         * rotation count of every preloaded session, the refresh token of row [i] is [r-i-generation],
+         * each thread only rotates the rows of its own stripe
+         */
+        int[] generations;
+
+        @Setup(Level.Trial)
+        public void preload() throws SQLException {
+            table = "bench_user_sessions_" + schema;
+            generations = new int[rows];
+            try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+                // a previous run rotated the tokens, start again from generation 0
+                statement.execute("DROP TABLE IF EXISTS " + table);
+                if ("legacy".equals(schema)) {
+                    createLegacyTable(statement);
+                } else {
+                    createDigestTable(statement);
+                }
+                statement.execute("ANALYZE " + table);
+            }
+        }
+
+        private void createLegacyTable(Statement statement) throws SQLException {
+            statement.execute("CREATE TABLE " + table + " (" +
+                    "id BIGSERIAL PRIMARY KEY, bjyotish_user_id BIGINT NOT NULL, " +
+                    "session_token VARCHAR(255) UNIQUE NOT NULL, refresh_token VARCHAR(255) UNIQUE, " +
+                    "expires_at TIMESTAMP WITH TIME ZONE NOT NULL, is_active BOOLEAN DEFAULT TRUE, ip_address INET, user_agent TEXT, " +
+                    "created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP, updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP)");
+            statement.execute("INSERT INTO " + table + " (bjyotish_user_id, session_token, refresh_token, expires_at, ip_address, user_agent) " +
+                    "SELECT i % 1000000, left('jwt-' || i || '-' || repeat(md5(i::text), 7), " + JWT_LENGTH + "), 'r-' || i || '-0', " +
+                    "now() + interval '7 days', '203.0.113.7', 'Mozilla/5.0' FROM generate_series(0, " + (rows - 1) + ") i");
+            statement.execute("CREATE INDEX ON " + table + "(bjyotish_user_id)");
+            statement.execute("CREATE INDEX ON " + table + "(session_token)");
+            statement.execute("CREATE INDEX ON " + table + "(refresh_token)");
+            statement.execute("CREATE INDEX ON " + table + "(expires_at)");
+        }
+
+        private void createDigestTable(Statement statement) throws SQLException {
+            statement.execute("CREATE TABLE " + table + " (" +
+                    "id BIGSERIAL PRIMARY KEY, bjyotish_user_id BIGINT NOT NULL, session_id UUID NOT NULL, " +
+                    "refresh_token_hash BYTEA NOT NULL, access_token_id UUID, " +
+                    "expires_at TIMESTAMP WITH TIME ZONE NOT NULL, is_active BOOLEAN DEFAULT TRUE, ip_address INET, user_agent TEXT, " +
+                    "created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP, updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP)");
+            statement.execute("INSERT INTO " + table + " (bjyotish_user_id, session_id, refresh_token_hash, access_token_id, expires_at, ip_address, user_agent) " +
+                    "SELECT i % 1000000, gen_random_uuid(), sha256(convert_to('r-' || i || '-0', 'UTF8')), gen_random_uuid(), " +
+                    "now() + interval '7 days', '203.0.113.7', 'Mozilla/5.0' FROM generate_series(0, " + (rows - 1) + ") i");
+            statement.execute("CREATE INDEX ON " + table + "(bjyotish_user_id)");
+            statement.execute("CREATE INDEX ON " + table + "(expires_at)");
+            statement.execute("CREATE UNIQUE INDEX ON " + table + "(session_id)");
+            statement.execute("CREATE UNIQUE INDEX ON " + table + "(refresh_token_hash) WHERE is_active");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+
+        private Connection connection;
+        private PreparedStatement login;
+        private PreparedStatement refresh;
+        private int stripe;
+        private int stripes;
+
+        @Setup(Level.Trial)
+        public void connect(Sessions sessions, ThreadParams threadParams) throws SQLException {
+            connection = UserSessionWriteBenchmark.connect();
+            stripe = threadParams.getThreadIndex();
+            stripes = threadParams.getThreadCount();
+            if ("legacy".equals(sessions.schema)) {
+                login = connection.prepareStatement("INSERT INTO " + sessions.table +
+                        " (bjyotish_user_id, session_token, refresh_token, expires_at, ip_address, user_agent) VALUES (?, ?, ?, ?, CAST(? AS INET), ?)");
+                refresh = connection.prepareStatement("UPDATE " + sessions.table +
+                        " SET session_token = ?, refresh_token = ?, updated_at = now() WHERE refresh_token = ? AND is_active");
+            } else {
+                login = connection.prepareStatement("INSERT INTO " + sessions.table +
+                        " (session_id, bjyotish_user_id, refresh_token_hash, access_token_id, expires_at, ip_address, user_agent) VALUES (?, ?, ?, ?, ?, CAST(? AS INET), ?)");
+                refresh = connection.prepareStatement("UPDATE " + sessions.table +
+                        " SET refresh_token_hash = ?, access_token_id = ?, updated_at = now() WHERE refresh_token_hash = ? AND is_active");
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            connection.close();
+        }
+
+        int nextRow(int rows) {
+            return stripe + stripes * ThreadLocalRandom.current().nextInt((rows - stripe + stripes - 1) / stripes);
+        }
+    }
+
+    @Benchmark
+    public int login(Sessions sessions, Writer writer) throws SQLException {
+        String refreshToken = UUID.randomUUID().toString();
+        Timestamp expiresAt = Timestamp.from(Instant.now().plusSeconds(7 * 24 * 3600));
+        PreparedStatement login = writer.login;
+        if ("legacy".equals(sessions.schema)) {
+            login.setLong(1, ThreadLocalRandom.current().nextLong(1_000_000));
+            login.setString(2, jwt(refreshToken));
+            login.setString(3, refreshToken);
+            login.setTimestamp(4, expiresAt);
+            login.setString(5, "203.0.113.7");
+            login.setString(6, "Mozilla/5.0");
+        } else {
+            login.setObject(1, UUID.randomUUID());
+            login.setLong(2, ThreadLocalRandom.current().nextLong(1_000_000));
+            login.setBytes(3, TokenDigest.sha256(refreshToken));
+            login.setObject(4, UUID.randomUUID());
+            login.setTimestamp(5, expiresAt);
+            login.setString(6, "203.0.113.7");
+            login.setString(7, "Mozilla/5.0");
+        }
+        return login.executeUpdate();
+    }
+
+    @Benchmark
+    public int refresh(Sessions sessions, Writer writer) throws SQLException {
+        int row = writer.nextRow(sessions.rows);
+        int generation = sessions.generations[row];
+        String currentToken = "r-" + row + "-" + generation;
+        String newToken = "r-" + row + "-" + (generation + 1);
+        PreparedStatement refresh = writer.refresh;
+        if ("legacy".equals(sessions.schema)) {
+            refresh.setString(1, jwt(newToken));
+            refresh.setString(2, newToken);
+            refresh.setString(3, currentToken);
+        } else {
+            refresh.setBytes(1, TokenDigest.sha256(newToken));
+            refresh.setObject(2, UUID.randomUUID());
+            refresh.setBytes(3, TokenDigest.sha256(currentToken));
+        }
+        int updated = refresh.executeUpdate();
+        if (updated != 1) {
+            throw new IllegalStateException("Session " + row + " was not rotated from generation " + generation);
+        }
+        sessions.generations[row] = generation + 1;
+        return updated;
+    }
+
+    private static String jwt(String refreshToken) {
+        StringBuilder jwt = new StringBuilder(JWT_LENGTH).append("eyJhbGciOiJIUzI1NiJ9.").append(refreshToken).append('.');
+        while (jwt.length() < JWT_LENGTH) {
+            jwt.append(Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        }
+        jwt.setLength(JWT_LENGTH);
+        return jwt.toString();
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(JDBC_URL, JDBC_USER, JDBC_PASSWORD);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(UserSessionWriteBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,58 @@
+package com.anterka.bjyotish.entities.listener;
+
+import com.anterka.bjyotish.constants.enums.UserStatusEnum;
+import com.anterka.bjyotish.entities.BjyotishUser;
+import com.anterka.bjyotish.service.redis.TokenEpochService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class BjyotishUserStatusListenerTest {
+
+    private final TokenEpochService tokenEpochService = mock(TokenEpochService.class);
+    private final BjyotishUserStatusListener listener = new BjyotishUserStatusListener(tokenEpochService);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void bumpsTheEpochWhenTheStatusChanged() {
+        listener.onUpdate(user(UserStatusEnum.ACTIVE, UserStatusEnum.SUSPENDED));
+
+        verify(tokenEpochService).incrementEpoch(42L);
+    }
+
+    @Test
+    void leavesTheEpochWhenTheStatusIsUnchanged() {
+        listener.onUpdate(user(UserStatusEnum.ACTIVE, UserStatusEnum.ACTIVE));
+
+        verifyNoInteractions(tokenEpochService);
+    }
+
+    @Test
+    void bumpsTheEpochOnlyOnceTheTransactionIsCommitted() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        listener.onUpdate(user(UserStatusEnum.ACTIVE, UserStatusEnum.INACTIVE));
+
+        verify(tokenEpochService, never()).incrementEpoch(42L);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(tokenEpochService).incrementEpoch(42L);
+    }
+
+    private static BjyotishUser user(UserStatusEnum persistedStatus, UserStatusEnum status) {
+        BjyotishUser user = BjyotishUser.builder().id(42L).status(status).build();
+        user.setPersistedStatus(persistedStatus);
+        return user;
+    }
+}
@@ -0,0 +1,129 @@
+package com.anterka.bjyotish.security;
+
+import com.anterka.bjyotish.exception.PasswordHashingUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Admission of the hashing tasks with a single hashing thread and a delegate that takes [HASH_MILLIS] per hash
+ */
+class OffloadingPasswordEncoderTest {
+
+    private static final long HASH_MILLIS = 200;
+
+    private final SlowPasswordEncoder delegate = new SlowPasswordEncoder();
+    private OffloadingPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        delegate.release.countDown();
+        encoder.destroy();
+    }
+
+    @Test
+    void rejectsOnSubmitWhenTheEstimatedWaitExceedsTheTimeout() throws Exception {
+        encoder = new OffloadingPasswordEncoder(delegate, 1, 10, 500, 2);
+        delegate.release.countDown();
+        assertThat(encoder.encode("warm-up")).isEqualTo("{slow}warm-up");
+        assertThat(encoder.getAverageHashMillis()).isGreaterThanOrEqualTo(HASH_MILLIS);
+        delegate.started.drainPermits();
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("running"));
+        assertThat(delegate.started.tryAcquire(1, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("queued"));
+        awaitQueueDepth(1);
+
+        // one hash running and one queued ahead : up to 600 ms until completion is beyond the 500 ms timeout
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> encoder.encode("rejected"))
+                .isInstanceOf(PasswordHashingUnavailableException.class)
+                .hasMessageContaining("Too many");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(HASH_MILLIS);
+
+        assertThat(running.get(1, TimeUnit.SECONDS)).isEqualTo("{slow}running");
+        assertThat(queued.get(1, TimeUnit.SECONDS)).isEqualTo("{slow}queued");
+    }
+
+    @Test
+    void rejectsOnSubmitWhenTheQueueIsFull() throws Exception {
+        encoder = new OffloadingPasswordEncoder(delegate, 1, 1, 5000, 2);
+        delegate.blocking = true;
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("running"));
+        assertThat(delegate.started.tryAcquire(1, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("queued"));
+        awaitQueueDepth(1);
+
+        assertThatThrownBy(() -> encoder.encode("rejected"))
+                .isInstanceOf(PasswordHashingUnavailableException.class)
+                .extracting("retryAfterSeconds").isEqualTo(2L);
+
+        delegate.release.countDown();
+        assertThat(running.get(1, TimeUnit.SECONDS)).isEqualTo("{slow}running");
+        assertThat(queued.get(1, TimeUnit.SECONDS)).isEqualTo("{slow}queued");
+    }
+
+    @Test
+    void dropsTheQueuedTaskOfACallerThatTimedOutButNotTheRunningOne() throws Exception {
+        encoder = new OffloadingPasswordEncoder(delegate, 1, 10, 100, 2);
+        delegate.blocking = true;
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("running"));
+        assertThat(delegate.started.tryAcquire(1, TimeUnit.SECONDS)).isTrue();
+        assertThatThrownBy(() -> encoder.encode("queued"))
+                .isInstanceOf(PasswordHashingUnavailableException.class)
+                .hasMessageContaining("timed out");
+        assertThatThrownBy(() -> running.get(1, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(PasswordHashingUnavailableException.class);
+        assertThat(encoder.getQueueDepth()).isZero();
+
+        // the caller gave up but the running hash keeps its thread until it completes
+        delegate.release.countDown();
+        Thread.sleep(2 * HASH_MILLIS);
+        assertThat(delegate.hashed).isEqualTo(1);
+    }
+
+    private void awaitQueueDepth(int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (encoder.getQueueDepth() < depth && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(encoder.getQueueDepth()).isEqualTo(depth);
+    }
+
+    private static final class SlowPasswordEncoder implements PasswordEncoder {
+        private final Semaphore started = new Semaphore(0);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean blocking;
+        private volatile int hashed;
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.release();
+            try {
+                if (blocking) {
+                    release.await();
+                }
+                Thread.sleep(HASH_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            hashed++;
+            return "{slow}" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
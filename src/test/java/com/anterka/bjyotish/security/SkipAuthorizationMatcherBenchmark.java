@@ -0,0 +1,93 @@
+package com.anterka.bjyotish.security;
+
+import com.anterka.bjyotish.controller.constants.ApiPaths;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.AntPathMatcher;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Skip authorization check of every path of the [ApiPaths] catalogue (the hits of [AuthorizationPaths] and all the
+ * other endpoints as misses, path variables filled in) : the baseline is the [Arrays.asList(...).contains] of the
+ * former [AuthTokenFilter.shouldNotFilter], the ant matcher loop is what a list of ant patterns in the
+ * [SecurityConfig] costs, and the route table is the [SkipAuthorizationMatcher].
+ * <pre>
+ * mvn test-compile
+ * java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.anterka.bjyotish.security.SkipAuthorizationMatcherBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SkipAuthorizationMatcherBenchmark {
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+    private final SkipAuthorizationMatcher skipAuthorizationMatcher = new SkipAuthorizationMatcher();
+    private String[] paths;
+
+    @Setup
+    public void setUp() throws IllegalAccessException {
+        List<String> catalogue = new ArrayList<>(Arrays.asList(AuthorizationPaths.SKIP_AUTHORIZATION_REQUESTS));
+        for (Field field : ApiPaths.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                String path = ApiPaths.API_V1_BASE + field.get(null);
+                catalogue.add(path.replaceAll("\\{[^}]+}", "42"));
+            }
+        }
+        paths = catalogue.stream().distinct().toArray(String[]::new);
+    }
+
+    @Benchmark
+    public void baselineListContains(Blackhole blackhole) {
+        for (String path : paths) {
+            blackhole.consume(Arrays.asList(AuthorizationPaths.SKIP_AUTHORIZATION_REQUESTS).contains(path));
+        }
+    }
+
+    @Benchmark
+    public void antPatternLoop(Blackhole blackhole) {
+        for (String path : paths) {
+            boolean matched = false;
+            for (String pattern : AuthorizationPaths.SKIP_AUTHORIZATION_REQUESTS) {
+                if (antPathMatcher.match(pattern, path)) {
+                    matched = true;
+                    break;
+                }
+            }
+            blackhole.consume(matched);
+        }
+    }
+
+    @Benchmark
+    public void routeTable(Blackhole blackhole) {
+        for (String path : paths) {
+            blackhole.consume(skipAuthorizationMatcher.matches(path));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SkipAuthorizationMatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,101 @@
+package com.anterka.bjyotish.security;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the route table with the [AntPathMatcher] semantics the paths were written for,
+ * on every configured path and on the near misses around it
+ */
+class SkipAuthorizationMatcherTest {
+
+    private static final AntPathMatcher ANT_PATH_MATCHER = new AntPathMatcher();
+
+    private static final String[] MIXED_PATHS = {
+            "/api/v1/auth/login",
+            "/docs/**",
+            "/api/v1/public/**",
+            "/api/v1/public/feeds/**",
+            "/api/v1/users/{id}/avatar",
+            "/static/*.png",
+            "/api/v1/horoscope/?"
+    };
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("configuredPaths")
+    void matchesTheConfiguredPathsLikeAntPathMatcher(String path) {
+        assertSameAsAntPathMatcher(AuthorizationPaths.SKIP_AUTHORIZATION_REQUESTS, new SkipAuthorizationMatcher(), path);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("mixedPaths")
+    void matchesPrefixesAndPatternsLikeAntPathMatcher(String path) {
+        assertSameAsAntPathMatcher(MIXED_PATHS, new SkipAuthorizationMatcher(MIXED_PATHS), path);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("configuredPaths")
+    void matchesTheServletPathAndThePathInfoOfTheRequest(String path) {
+        SkipAuthorizationMatcher matcher = new SkipAuthorizationMatcher();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        int split = path.indexOf('/', 1);
+        if (split > 0) {
+            request.setServletPath(path.substring(0, split));
+            request.setPathInfo(path.substring(split));
+        } else {
+            request.setServletPath(path);
+        }
+
+        assertThat(matcher.matches(request)).isEqualTo(matcher.matches(path));
+    }
+
+    static Stream<Arguments> configuredPaths() {
+        return candidates(AuthorizationPaths.SKIP_AUTHORIZATION_REQUESTS);
+    }
+
+    static Stream<Arguments> mixedPaths() {
+        return Stream.concat(candidates(MIXED_PATHS), Stream.of(
+                "/docs", "/docs/", "/docs/index.html", "/docsets", "/doc",
+                "/api/v1/public/feeds/daily/today", "/api/v1/publicity",
+                "/api/v1/users/42/avatar", "/api/v1/users/42/avatar/large", "/api/v1/users/42",
+                "/static/logo.png", "/static/img/logo.png", "/static/logo.svg",
+                "/api/v1/horoscope/1", "/api/v1/horoscope/12", "/").map(Arguments::of));
+    }
+
+    /**
+     * every configured path, its prefix form stripped of [/**], and the near misses : trailing slash,
+     * extra segment, longer last segment, parent, other case
+     */
+    private static Stream<Arguments> candidates(String[] paths) {
+        Set<String> candidates = new LinkedHashSet<>();
+        for (String path : paths) {
+            String base = path.endsWith("/**") ? path.substring(0, path.length() - 3) : path;
+            candidates.add(base);
+            candidates.add(base + "/");
+            candidates.add(base + "/extra");
+            candidates.add(base + "extra");
+            candidates.add(base.toUpperCase(Locale.ROOT));
+            int parentEnd = base.lastIndexOf('/');
+            candidates.add(parentEnd > 0 ? base.substring(0, parentEnd) : "/");
+        }
+        candidates.removeIf(candidate -> candidate.indexOf('*') >= 0 || candidate.indexOf('{') >= 0 || candidate.indexOf('?') >= 0);
+        return candidates.stream().map(Arguments::of);
+    }
+
+    private static void assertSameAsAntPathMatcher(String[] paths, SkipAuthorizationMatcher matcher, String path) {
+        boolean expected = Arrays.stream(paths).anyMatch(pattern -> ANT_PATH_MATCHER.match(pattern, path));
+
+        assertThat(matcher.matches(path)).as("matches(%s)", path).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,89 @@
+package com.anterka.bjyotish.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token check of the [AuthTokenFilter] per request : the baseline path extracted the user name and then called
+ * [isTokenValid], which extracted the user name and the expiration again, so every request parsed and verified the
+ * token three times with a parser built for each parse. The current path parses once with the shared parser and
+ * validates the [ParsedToken].
+ * <pre>
+ * mvn test-compile
+ * java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.anterka.bjyotish.security.jwt.JwtParserBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtParserBenchmark {
+
+    private Key signingKey;
+    private JwtUtils jwtUtils;
+    private UserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        String secret = Encoders.BASE64.encode(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded());
+        MockEnvironment env = new MockEnvironment().withProperty("jwt.security.secret-key", secret);
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        jwtUtils = new JwtUtils(env, new JwtKeyRing(env));
+        userDetails = User.withUsername("asha@example.com").password("unused").authorities(List.of()).build();
+        token = jwtUtils.generateJwtToken(
+                Map.of(JwtUtils.CLAIM_USER_ID, 42L, JwtUtils.CLAIM_ROLE, "CLIENT", JwtUtils.CLAIM_STATUS, "ACTIVE"),
+                "asha@example.com");
+    }
+
+    @Benchmark
+    public boolean baselineTripleParse() {
+        String userName = baselineClaims().getSubject();
+        return userName.equals(userDetails.getUsername())
+                && baselineClaims().getSubject().equals(userDetails.getUsername())
+                && !baselineClaims().getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public boolean singleParse() {
+        ParsedToken parsedToken = jwtUtils.parseToken(token);
+        return jwtUtils.isTokenValid(parsedToken, userDetails);
+    }
+
+    private Claims baselineClaims() {
+        return Jwts.parserBuilder().setSigningKey(signingKey).build().parseClaimsJws(token).getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtParserBenchmark.class.getSimpleName()).build()).run();
+    }
+}
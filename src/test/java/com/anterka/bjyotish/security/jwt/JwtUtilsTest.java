@@ -0,0 +1,130 @@
+package com.anterka.bjyotish.security.jwt;
+
+import com.anterka.bjyotish.constants.enums.UserRoleEnum;
+import com.anterka.bjyotish.constants.enums.UserStatusEnum;
+import com.anterka.bjyotish.entities.BjyotishUser;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.security.KeyPair;
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtUtilsTest {
+
+    private static final String SECRET = Encoders.BASE64.encode(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded());
+
+    @Test
+    void parsesTheClaimsOfAGeneratedToken() {
+        JwtUtils jwtUtils = hs256(SECRET);
+
+        ParsedToken token = jwtUtils.parseToken(jwtUtils.generateJwtToken(
+                Map.of(JwtUtils.CLAIM_USER_ID, 42L, JwtUtils.CLAIM_ROLE, "CLIENT"), "asha@example.com"));
+
+        assertThat(token.getSubject()).isEqualTo("asha@example.com");
+        assertThat(token.getClaim(JwtUtils.CLAIM_USER_ID, Long.class)).isEqualTo(42L);
+        assertThat(token.getClaim(JwtUtils.CLAIM_ROLE, String.class)).isEqualTo("CLIENT");
+        assertThat(token.getTokenId()).isNotBlank();
+        assertThat(token.isExpired()).isFalse();
+        assertThat(token.getExpiresAt()).isEqualTo(token.getIssuedAt().plusMillis(jwtUtils.getJwtExpirationTimeInMillis()));
+    }
+
+    @Test
+    void issuesTheTokenIdAndTheExpirationItSigned() {
+        JwtUtils jwtUtils = hs256(SECRET);
+        BjyotishUser user = BjyotishUser.builder().id(42L).email("asha@example.com")
+                .role(UserRoleEnum.CLIENT).status(UserStatusEnum.ACTIVE).build();
+
+        IssuedToken issued = jwtUtils.issueJwtToken(user, 3);
+        ParsedToken token = jwtUtils.parseToken(issued.token());
+
+        assertThat(issued.tokenId()).hasToString(token.getTokenId());
+        assertThat(issued.expiresAt()).isEqualTo(token.getExpiresAt());
+        assertThat(token.toPrincipal().userId()).isEqualTo(42L);
+    }
+
+    @Test
+    void givesEveryTokenItsOwnId() {
+        JwtUtils jwtUtils = hs256(SECRET);
+
+        assertThat(jwtUtils.parseToken(jwtUtils.generateJwtToken("asha@example.com")).getTokenId())
+                .isNotEqualTo(jwtUtils.parseToken(jwtUtils.generateJwtToken("asha@example.com")).getTokenId());
+    }
+
+    @Test
+    void rejectsATokenSignedWithAnotherSecret() {
+        String foreignToken = hs256(Encoders.BASE64.encode(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded()))
+                .generateJwtToken("asha@example.com");
+
+        assertThatThrownBy(() -> hs256(SECRET).parseToken(foreignToken)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void rejectsATamperedToken() {
+        JwtUtils jwtUtils = hs256(SECRET);
+        String token = jwtUtils.generateJwtToken("asha@example.com");
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + Encoders.BASE64URL.encode("{\"sub\":\"ravi@example.com\"}".getBytes()) + "." + parts[2];
+
+        assertThatThrownBy(() -> jwtUtils.parseToken(tampered)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void rejectsAnExpiredToken() {
+        String expired = Jwts.builder()
+                .setSubject("asha@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertThatThrownBy(() -> hs256(SECRET).parseToken(expired)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void verifiesTheTokensOfTheRetiredKidAfterAnEs256Rotation() {
+        KeyPair oldKey = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        KeyPair newKey = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        JwtUtils beforeRotation = es256("k1", Map.of("k1", oldKey));
+        JwtUtils afterRotation = es256("k2", Map.of("k1", oldKey, "k2", newKey));
+
+        assertThat(afterRotation.parseToken(beforeRotation.generateJwtToken("asha@example.com")).getSubject())
+                .isEqualTo("asha@example.com");
+        assertThatThrownBy(() -> beforeRotation.parseToken(afterRotation.generateJwtToken("asha@example.com")))
+                .isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void requiresTheKeyIdsForEs256() {
+        MockEnvironment env = new MockEnvironment().withProperty("jwt.security.signing.algorithm", "ES256");
+
+        assertThatThrownBy(() -> new JwtKeyRing(env))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("jwt.security.signing.key-ids");
+    }
+
+    private static JwtUtils hs256(String secret) {
+        MockEnvironment env = new MockEnvironment().withProperty("jwt.security.secret-key", secret);
+        return new JwtUtils(env, new JwtKeyRing(env));
+    }
+
+    private static JwtUtils es256(String activeKid, Map<String, KeyPair> keys) {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("jwt.security.signing.algorithm", "ES256")
+                .withProperty("jwt.security.signing.key-ids", String.join(",", keys.keySet()))
+                .withProperty("jwt.security.signing.active-kid", activeKid);
+        keys.forEach((kid, keyPair) -> env
+                .withProperty("jwt.security.signing.keys." + kid + ".public-key", Encoders.BASE64.encode(keyPair.getPublic().getEncoded()))
+                .withProperty("jwt.security.signing.keys." + kid + ".private-key", Encoders.BASE64.encode(keyPair.getPrivate().getEncoded())));
+        return new JwtUtils(env, new JwtKeyRing(env));
+    }
+}
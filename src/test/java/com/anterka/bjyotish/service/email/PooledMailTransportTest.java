@@ -0,0 +1,130 @@
+package com.anterka.bjyotish.service.email;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PooledMailTransportTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledMailTransportTest.class);
+
+    private FakeSmtpServer smtpServer;
+    private JavaMailSenderImpl mailSender;
+    private PooledMailTransport transport;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        smtpServer = new FakeSmtpServer();
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(smtpServer.port());
+        mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "5000");
+        mailSender.getJavaMailProperties().put("mail.smtp.timeout", "5000");
+    }
+
+    @AfterEach
+    void stopServer() throws Exception {
+        if (transport != null) {
+            transport.destroy();
+        }
+        smtpServer.close();
+    }
+
+    @Test
+    void reusesTheConnectionAcrossSends() throws Exception {
+        transport = new PooledMailTransport(mailSender, new SimpleMeterRegistry(), 1, 500);
+
+        assertThat(transport.send(messages(5))).isEmpty();
+        assertThat(transport.send(messages(5))).isEmpty();
+
+        assertThat(smtpServer.receivedMessages).hasValue(10);
+        assertThat(smtpServer.openedConnections).hasValue(1);
+        assertThat(smtpServer.quits).hasValue(0);
+    }
+
+    @Test
+    void renewsTheConnectionAfterMaxMessagesPerConnection() throws Exception {
+        transport = new PooledMailTransport(mailSender, new SimpleMeterRegistry(), 1, 3);
+
+        assertThat(transport.send(messages(7))).isEmpty();
+
+        assertThat(smtpServer.receivedMessages).hasValue(7);
+        // 3 + 3 + 1 mails, the two full connections were closed before being replaced
+        assertThat(smtpServer.openedConnections).hasValue(3);
+        assertThat(smtpServer.quits).hasValue(2);
+    }
+
+    @Test
+    void closesTheIdleConnectionsOnShutdown() throws Exception {
+        transport = new PooledMailTransport(mailSender, new SimpleMeterRegistry(), 2, 500);
+        transport.send(messages(2));
+
+        transport.destroy();
+        transport = null;
+
+        assertThat(smtpServer.quits).hasValue(1);
+    }
+
+    @Test
+    void measuresTheThroughputOfConcurrentSenders() throws Exception {
+        int poolSize = 4;
+        int chunks = 40;
+        int chunkSize = 50;
+        transport = new PooledMailTransport(mailSender, new SimpleMeterRegistry(), poolSize, 500);
+        List<List<MimeMessage>> batches = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            batches.add(messages(chunkSize));
+        }
+
+        ExecutorService senders = Executors.newFixedThreadPool(poolSize);
+        long start = System.nanoTime();
+        try {
+            List<Future<Map<MimeMessage, Exception>>> results = new ArrayList<>();
+            for (List<MimeMessage> batch : batches) {
+                results.add(senders.submit(() -> transport.send(batch)));
+            }
+            for (Future<Map<MimeMessage, Exception>> result : results) {
+                assertThat(result.get()).isEmpty();
+            }
+        } finally {
+            senders.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int sent = chunks * chunkSize;
+        log.info("Sent {} mails over {} pooled connections in {}s : {} mails/s",
+                sent, smtpServer.openedConnections.get(), String.format("%.2f", seconds), Math.round(sent / seconds));
+        assertThat(smtpServer.receivedMessages).hasValue(sent);
+        assertThat(smtpServer.openedConnections.get()).isLessThanOrEqualTo(poolSize);
+    }
+
+    private List<MimeMessage> messages(int count) throws MessagingException {
+        List<MimeMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            MimeMessage message = transport.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
+            helper.setFrom("noreply@bhaskarjyotish.example");
+            helper.setTo("user" + i + "@example.com");
+            helper.setSubject("Daily horoscope " + i);
+            helper.setText("Your horoscope for today");
+            messages.add(message);
+        }
+        return messages;
+    }
+}
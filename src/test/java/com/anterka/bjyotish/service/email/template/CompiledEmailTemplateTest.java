@@ -0,0 +1,64 @@
+package com.anterka.bjyotish.service.email.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompiledEmailTemplateTest {
+
+    @Test
+    void rendersTheSubjectAndTheBody() {
+        CompiledEmailTemplate template = CompiledEmailTemplate.compile("test.txt", EmailContentType.TEXT,
+                "Subject: Order {{id}}\r\nDear {{name}},\r\nyour order {{id}} has shipped.");
+
+        RenderedEmail email = template.render(Map.of("id", 42, "name", "Asha"), new StringBuilder());
+
+        assertThat(email.subject()).isEqualTo("Order 42");
+        assertThat(email.body()).isEqualTo("Dear Asha,\nyour order 42 has shipped.");
+    }
+
+    @Test
+    void rendersATemplateWithoutPlaceholdersOrBody() {
+        assertThat(CompiledEmailTemplate.compile("plain.txt", EmailContentType.TEXT, "Subject: Plain\nNo placeholders")
+                .render(Map.of(), new StringBuilder()).body()).isEqualTo("No placeholders");
+        assertThat(CompiledEmailTemplate.compile("empty.txt", EmailContentType.TEXT, "Subject: Empty")
+                .render(Map.of(), new StringBuilder()).body()).isEmpty();
+    }
+
+    @Test
+    void clearsTheReusedBuffer() {
+        CompiledEmailTemplate template = CompiledEmailTemplate.compile("test.txt", EmailContentType.TEXT, "Subject: Hi\n{{name}}");
+        StringBuilder buffer = new StringBuilder("leftover");
+
+        assertThat(template.render(Map.of("name", "Asha"), buffer).body()).isEqualTo("Asha");
+        assertThat(template.render(Map.of("name", "Ravi"), buffer).body()).isEqualTo("Ravi");
+    }
+
+    @Test
+    void rejectsAnUnclosedPlaceholder() {
+        assertThatThrownBy(() -> CompiledEmailTemplate.compile("broken.txt", EmailContentType.TEXT, "Subject: Hi\nHello {{name"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unclosed placeholder")
+                .hasMessageContaining("broken.txt");
+    }
+
+    @Test
+    void rejectsATemplateWithoutSubject() {
+        assertThatThrownBy(() -> CompiledEmailTemplate.compile("nosubject.txt", EmailContentType.TEXT, "Hello {{name}}"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Subject:");
+    }
+
+    @Test
+    void rejectsAMissingParameter() {
+        CompiledEmailTemplate template = CompiledEmailTemplate.compile("test.txt", EmailContentType.TEXT, "Subject: Hi {{name}}\nBody");
+
+        assertThatThrownBy(() -> template.render(Map.of("other", "value"), new StringBuilder()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("[name]")
+                .hasMessageContaining("[test.txt]");
+    }
+}
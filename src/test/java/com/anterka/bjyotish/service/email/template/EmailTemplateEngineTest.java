@@ -0,0 +1,99 @@
+package com.anterka.bjyotish.service.email.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmailTemplateEngineTest {
+
+    private final EmailTemplateEngine engine = new EmailTemplateEngine("en");
+
+    @Test
+    void resolvesTheExactLocaleFirst() {
+        RenderedEmail email = engine.render("greeting", Locale.forLanguageTag("en-IN"), Map.of("name", "Asha"));
+
+        assertThat(email.subject()).isEqualTo("Hello Asha from India");
+        assertThat(email.body()).isEqualTo("Hello Asha, welcome to India!");
+        assertThat(email.html()).isFalse();
+    }
+
+    @Test
+    void fallsBackToTheLanguageOfTheLocale() {
+        RenderedEmail email = engine.render("greeting", Locale.forLanguageTag("hi-IN"), Map.of("name", "Asha"));
+
+        assertThat(email.subject()).isEqualTo("Namaste Asha");
+    }
+
+    @Test
+    void fallsBackToTheDefaultLocaleThenToTheTemplateWithoutLocale() {
+        assertThat(engine.render("greeting", Locale.FRENCH, Map.of("name", "Asha")).subject()).isEqualTo("Hello Asha");
+        assertThat(engine.render("greeting", null, Map.of("name", "Asha")).subject()).isEqualTo("Hello Asha");
+
+        EmailTemplateEngine hindiByDefault = new EmailTemplateEngine("hi");
+        assertThat(hindiByDefault.render("greeting", Locale.FRENCH, Map.of("name", "Asha")).subject()).isEqualTo("Namaste Asha");
+    }
+
+    @Test
+    void escapesTheValuesOfTheHtmlTemplatesOnly() {
+        RenderedEmail html = engine.render("greeting", null, EmailContentType.HTML, Map.of("name", "<b>Asha</b>"));
+        RenderedEmail text = engine.render("greeting", null, EmailContentType.TEXT, Map.of("name", "<b>Asha</b>"));
+
+        assertThat(html.html()).isTrue();
+        assertThat(html.subject()).isEqualTo("Hi <b>Asha</b>");
+        assertThat(html.body()).isEqualTo("<p>Hi &lt;b&gt;Asha&lt;/b&gt;</p>");
+        assertThat(text.body()).isEqualTo("Hello <b>Asha</b>, welcome!");
+    }
+
+    @Test
+    void rendersTheApplicationTemplates() {
+        RenderedEmail otp = engine.render("otp_verification", null, Map.of("otp", "123456"));
+        RenderedEmail forgotPassword = engine.render("forgot_password", null,
+                Map.of("link", "https://example.com/reset?token=abc", "expiresInMinutes", 15L));
+
+        assertThat(otp.subject()).isEqualTo("OTP for Email Verification");
+        assertThat(otp.body()).isEqualTo("Your OTP for email verification is: 123456");
+        assertThat(forgotPassword.body()).isEqualTo("To reset your password, click the link below:\n\n"
+                + "https://example.com/reset?token=abc\n\nThis link will expire in 15 minutes.");
+    }
+
+    @Test
+    void rendersIndependentResultsWithTheReusedBuffer() {
+        RenderedEmail first = engine.render("greeting", null, Map.of("name", "Asha"));
+        RenderedEmail second = engine.render("greeting", null, Map.of("name", "Ravi"));
+
+        assertThat(first.body()).isEqualTo("Hello Asha, welcome!");
+        assertThat(second.body()).isEqualTo("Hello Ravi, welcome!");
+    }
+
+    @Test
+    void rejectsAnUnknownTemplate() {
+        assertThatThrownBy(() -> engine.render("unknown", Locale.ENGLISH, Map.of()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("unknown");
+        assertThatThrownBy(() -> engine.render("otp_verification", null, EmailContentType.HTML, Map.of("otp", "1")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsAMissingParameter() {
+        assertThatThrownBy(() -> engine.render("greeting", null, Map.of()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("[name]");
+    }
+
+    @Test
+    void parsesTheLocaleSuffixOfTheTemplateNames() {
+        assertThat(EmailTemplateEngine.parseKey("otp_verification", EmailContentType.TEXT))
+                .isEqualTo(new EmailTemplateEngine.TemplateKey("otp_verification", "", EmailContentType.TEXT));
+        assertThat(EmailTemplateEngine.parseKey("forgot_password_en_IN", EmailContentType.HTML))
+                .isEqualTo(new EmailTemplateEngine.TemplateKey("forgot_password", "en_IN", EmailContentType.HTML));
+        assertThat(EmailTemplateEngine.parseKey("greeting_hi", EmailContentType.TEXT))
+                .isEqualTo(new EmailTemplateEngine.TemplateKey("greeting", "hi", EmailContentType.TEXT));
+        assertThat(EmailTemplateEngine.parseKey("greeting", EmailContentType.TEXT))
+                .isEqualTo(new EmailTemplateEngine.TemplateKey("greeting", "", EmailContentType.TEXT));
+    }
+}
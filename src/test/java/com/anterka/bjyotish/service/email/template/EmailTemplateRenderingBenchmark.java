@@ -0,0 +1,89 @@
+package com.anterka.bjyotish.service.email.template;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of a precompiled template into the reused buffer against the naive rendering, which splits the
+ * subject line off and replaces every placeholder of the source on each call.
+ * <pre>
+ * mvn test-compile
+ * java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.anterka.bjyotish.service.email.template.EmailTemplateRenderingBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailTemplateRenderingBenchmark {
+
+    private static final String SOURCE = """
+            Subject: Your daily horoscope, {{name}}
+            Dear {{name}},
+
+            Here is your horoscope for {{date}} as a {{sign}}:
+            {{horoscope}}
+
+            Lucky number : {{luckyNumber}}
+            Lucky colour : {{luckyColour}}
+
+            To stop receiving these mails, visit {{unsubscribeLink}}
+            """;
+
+    private final Map<String, Object> parameters = Map.of(
+            "name", "Asha",
+            "date", "18 October 2026",
+            "sign", "Libra",
+            "horoscope", "A balanced day, the moon favours long pending conversations with family and old friends.",
+            "luckyNumber", 7,
+            "luckyColour", "Indigo",
+            "unsubscribeLink", "https://bhaskarjyotish.example/unsubscribe?token=0f3a9c");
+
+    private CompiledEmailTemplate compiled;
+    private final StringBuilder buffer = new StringBuilder(1024);
+
+    @Setup
+    public void compile() {
+        compiled = CompiledEmailTemplate.compile("horoscope.txt", EmailContentType.TEXT, SOURCE);
+    }
+
+    @Benchmark
+    public RenderedEmail precompiled() {
+        return compiled.render(parameters, buffer);
+    }
+
+    @Benchmark
+    public RenderedEmail naive() {
+        int lineEnd = SOURCE.indexOf('\n');
+        String subject = SOURCE.substring("Subject:".length(), lineEnd).trim();
+        String body = SOURCE.substring(lineEnd + 1);
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            String placeholder = "{{" + parameter.getKey() + "}}";
+            String value = String.valueOf(parameter.getValue());
+            subject = subject.replace(placeholder, value);
+            body = body.replace(placeholder, value);
+        }
+        return new RenderedEmail(subject, body, false);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EmailTemplateRenderingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
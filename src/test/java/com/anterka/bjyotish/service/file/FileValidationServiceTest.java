@@ -0,0 +1,107 @@
+package com.anterka.bjyotish.service.file;
+
+import com.anterka.bjyotish.constants.enums.FileTypeEnum;
+import com.anterka.bjyotish.exception.FileUploadException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Magic number sniffing of the declared content type, on the multipart path and on the spooled path
+ */
+class FileValidationServiceTest {
+
+    private static final byte[] PDF = "%PDF-1.7\n%\u00e2\u00e3\u00cf\u00d3\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] DOCX = {'P', 'K', 0x03, 0x04, 0x14, 0x00, 0x06, 0x00, 0x08, 0x00, 0x00, 0x00, 0x21, 0x00};
+    private static final byte[] WAV = "RIFF$\u0000\u0000\u0000WAVEfmt ".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final FileValidationService fileValidationService = new FileValidationService();
+
+    @TempDir
+    Path spoolDirectory;
+
+    @Test
+    void acceptsAnImageMatchingItsContentType() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "avatar.png", "image/png", image("png", 64, 64));
+
+        assertThatCode(() -> fileValidationService.validateFile(file, FileTypeEnum.PROFILE_IMAGE)).doesNotThrowAnyException();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("matchingDocuments")
+    void acceptsADocumentMatchingItsContentType(String contentType, byte[] content) {
+        MockMultipartFile file = new MockMultipartFile("file", "document", contentType, content);
+
+        assertThatCode(() -> fileValidationService.validateFile(file, FileTypeEnum.DOCUMENT)).doesNotThrowAnyException();
+    }
+
+    @ParameterizedTest(name = "{0} as {1}")
+    @MethodSource("mismatchingContents")
+    void rejectsAContentNotMatchingItsContentType(String description, String contentType, FileTypeEnum fileType, byte[] content) {
+        MockMultipartFile file = new MockMultipartFile("file", "upload", contentType, content);
+
+        assertThatThrownBy(() -> fileValidationService.validateFile(file, fileType))
+                .isInstanceOf(FileUploadException.class)
+                .hasMessageContaining("does not match its content type " + contentType);
+    }
+
+    @Test
+    void sniffsTheHeaderOfASpooledUpload() throws IOException {
+        MockMultipartFile png = new MockMultipartFile("file", "avatar.png", "image/png", image("png", 64, 64));
+        MockMultipartFile pngAsJpeg = new MockMultipartFile("file", "avatar.jpg", "image/jpeg", image("png", 64, 64));
+
+        try (SpooledUpload upload = SpooledUpload.spool(png, spoolDirectory)) {
+            assertThatCode(() -> fileValidationService.validateContent(upload, FileTypeEnum.PROFILE_IMAGE)).doesNotThrowAnyException();
+        }
+        try (SpooledUpload upload = SpooledUpload.spool(pngAsJpeg, spoolDirectory)) {
+            assertThatThrownBy(() -> fileValidationService.validateContent(upload, FileTypeEnum.PROFILE_IMAGE))
+                    .isInstanceOf(FileUploadException.class)
+                    .hasMessageContaining("does not match its content type image/jpeg");
+        }
+    }
+
+    @Test
+    void rejectsAnImageBelowTheMinimumDimensions() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "icon.png", "image/png", image("png", 16, 16));
+
+        assertThatThrownBy(() -> fileValidationService.validateFile(file, FileTypeEnum.PROFILE_IMAGE))
+                .isInstanceOf(FileUploadException.class)
+                .hasMessageContaining("too small");
+    }
+
+    static Stream<Arguments> matchingDocuments() {
+        return Stream.of(
+                Arguments.of("application/pdf", PDF),
+                Arguments.of("application/vnd.openxmlformats-officedocument.wordprocessingml.document", DOCX));
+    }
+
+    static Stream<Arguments> mismatchingContents() throws IOException {
+        return Stream.of(
+                Arguments.of("png", "image/jpeg", FileTypeEnum.PROFILE_IMAGE, image("png", 64, 64)),
+                Arguments.of("jpeg", "image/png", FileTypeEnum.PROFILE_IMAGE, image("jpeg", 64, 64)),
+                Arguments.of("wav", "image/webp", FileTypeEnum.PROFILE_IMAGE, WAV),
+                Arguments.of("pdf", "application/msword", FileTypeEnum.DOCUMENT, PDF),
+                Arguments.of("html", "application/pdf", FileTypeEnum.DOCUMENT, "<html><script>".getBytes(StandardCharsets.US_ASCII)),
+                Arguments.of("truncated", "application/pdf", FileTypeEnum.DOCUMENT, new byte[]{'%', 'P'}));
+    }
+
+    private static byte[] image(String format, int width, int height) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,72 @@
+package com.anterka.bjyotish.service.file;
+
+import com.anterka.bjyotish.constants.enums.FileTypeEnum;
+import com.anterka.bjyotish.exception.FileUploadException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The spooled file never outlives the upload, whether it succeeds, fails to spool or fails its validation
+ */
+class SpooledUploadTest {
+
+    private static final byte[] PDF = "%PDF-1.7\n1 0 obj\n".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path spoolDirectory;
+
+    @Test
+    void spoolsTheFileAndDeletesItOnClose() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "chart.pdf", "application/pdf", PDF);
+
+        Path spooled;
+        try (SpooledUpload upload = SpooledUpload.spool(file, spoolDirectory)) {
+            spooled = upload.path();
+            assertThat(spooled).hasParent(spoolDirectory).hasBinaryContent(PDF);
+            assertThat(upload.size()).isEqualTo(PDF.length);
+            assertThat(upload.contentType()).isEqualTo("application/pdf");
+            assertThat(upload.originalFilename()).isEqualTo("chart.pdf");
+            assertThat(upload.header(5)).isEqualTo("%PDF-".getBytes(StandardCharsets.US_ASCII));
+            assertThat(upload.header(1024)).isEqualTo(PDF);
+        }
+        assertThat(spooled).doesNotExist();
+    }
+
+    @Test
+    void deletesThePartialFileWhenTheTransferFails() {
+        MockMultipartFile file = new MockMultipartFile("file", "chart.pdf", "application/pdf", PDF) {
+            @Override
+            public void transferTo(Path destination) throws IOException {
+                Files.write(destination, new byte[]{'%', 'P'});
+                throw new IOException("Connection reset by peer");
+            }
+        };
+
+        assertThatThrownBy(() -> SpooledUpload.spool(file, spoolDirectory))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Connection reset by peer");
+        assertThat(spoolDirectory).isEmptyDirectory();
+    }
+
+    @Test
+    void deletesTheFileWhenTheValidationFails() {
+        MockMultipartFile file = new MockMultipartFile("file", "chart.pdf", "application/pdf",
+                "<html><script>".getBytes(StandardCharsets.US_ASCII));
+
+        assertThatThrownBy(() -> {
+            try (SpooledUpload upload = SpooledUpload.spool(file, spoolDirectory)) {
+                new FileValidationService().validateContent(upload, FileTypeEnum.DOCUMENT);
+            }
+        }).isInstanceOf(FileUploadException.class);
+        assertThat(spoolDirectory).isEmptyDirectory();
+    }
+}
@@ -0,0 +1,69 @@
+package com.anterka.bjyotish.service.helper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    private static final int EXPECTED_INSERTIONS = 10_000;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    @Test
+    void neverForgetsAnAddedValue() {
+        BloomFilter filter = new BloomFilter(EXPECTED_INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+        String[] values = IntStream.range(0, EXPECTED_INSERTIONS).mapToObj(i -> UUID.randomUUID().toString()).toArray(String[]::new);
+
+        for (String value : values) {
+            filter.add(value);
+        }
+
+        assertThat(values).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void keepsTheFalsePositiveRateNearTheTargetAtTheExpectedInsertions() {
+        BloomFilter filter = new BloomFilter(EXPECTED_INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+        IntStream.range(0, EXPECTED_INSERTIONS).forEach(i -> filter.add("added-" + i));
+
+        int probes = 100_000;
+        long falsePositives = IntStream.range(0, probes).filter(i -> filter.mightContain("absent-" + i)).count();
+
+        assertThat((double) falsePositives / probes).isLessThan(FALSE_POSITIVE_PROBABILITY * 2);
+    }
+
+    @Test
+    void rejectsEverythingWhenEmpty() {
+        BloomFilter filter = new BloomFilter(EXPECTED_INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+
+        assertThat(IntStream.range(0, 1_000).mapToObj(i -> "absent-" + i)).noneMatch(filter::mightContain);
+    }
+
+    @Test
+    void keepsTheValuesAddedConcurrently() throws Exception {
+        BloomFilter filter = new BloomFilter(EXPECTED_INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = IntStream.range(0, threads)
+                    .mapToObj(t -> executor.submit(() -> IntStream.range(0, EXPECTED_INSERTIONS / threads)
+                            .forEach(i -> filter.add(t + "-" + i))))
+                    .toArray(Future[]::new);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(IntStream.range(0, threads).boxed()
+                .flatMap(t -> IntStream.range(0, EXPECTED_INSERTIONS / threads).mapToObj(i -> t + "-" + i)))
+                .allMatch(filter::mightContain);
+    }
+}
@@ -0,0 +1,27 @@
+package com.anterka.bjyotish.service.helper;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pins the digests to the values computed by the V3 migration for the refresh tokens already stored, i.e.
+ * [SELECT encode(sha256(convert_to(token, 'UTF8')), 'hex')] in Postgres, so that a change of the encoding
+ * cannot silently invalidate the existing sessions
+ */
+class TokenDigestTest {
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @CsvSource(delimiter = '|', value = {
+            "''                                   | e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+            "abc                                  | ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+            "3f2b9c1e-8d4a-4f6b-9e21-7c5a0d9b4e13 | a73cdb836a3f6da3c5f9b1211015011e0ccdb823672c1c94543de5bf1b0918df",
+            "r\u00e9fresh-\u091c\u094d\u092f\u094b\u0924\u093f\u0937 | cdab39d281a80420e62143e3d79be2d0f598f165335b31d630a0167ea38e53bd"
+    })
+    void matchesTheDigestOfTheUtf8BytesComputedByPostgres(String token, String expectedHex) {
+        assertThat(HexFormat.of().formatHex(TokenDigest.sha256(token))).isEqualTo(expectedHex);
+    }
+}
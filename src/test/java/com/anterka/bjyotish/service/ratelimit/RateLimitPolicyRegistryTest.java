@@ -0,0 +1,49 @@
+package com.anterka.bjyotish.service.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimitPolicyRegistryTest {
+
+    @Test
+    void parsesTheAlgorithmTheLimitAndTheWindow() {
+        assertThat(RateLimitPolicyRegistry.parse("login", "sliding_log:5/15m"))
+                .isEqualTo(new RateLimitPolicy("login", RateLimitAlgorithm.SLIDING_LOG, 5, Duration.ofMinutes(15)));
+        assertThat(RateLimitPolicyRegistry.parse("otp", " TOKEN_BUCKET : 100 / 1h "))
+                .isEqualTo(new RateLimitPolicy("otp", RateLimitAlgorithm.TOKEN_BUCKET, 100, Duration.ofHours(1)));
+    }
+
+    @Test
+    void parsesTheIsoWindow() {
+        assertThat(RateLimitPolicyRegistry.parse("upload", "token_bucket:10/PT30S").window()).isEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void rejectsASpecWithoutAlgorithmOrWindow() {
+        assertThatThrownBy(() -> RateLimitPolicyRegistry.parse("login", "5/15m"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("login");
+        assertThatThrownBy(() -> RateLimitPolicyRegistry.parse("login", "sliding_log:5"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsAnUnknownAlgorithm() {
+        assertThatThrownBy(() -> RateLimitPolicyRegistry.parse("login", "leaky_bucket:5/15m"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsANonPositiveLimitOrWindow() {
+        assertThatThrownBy(() -> RateLimitPolicyRegistry.parse("login", "sliding_log:0/15m"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RateLimitPolicyRegistry.parse("login", "sliding_log:5/0s"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RateLimitPolicyRegistry.parse("login", "sliding_log:five/15m"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
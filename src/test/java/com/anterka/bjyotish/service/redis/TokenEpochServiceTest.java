@@ -0,0 +1,47 @@
+package com.anterka.bjyotish.service.redis;
+
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.JedisPooled;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenEpochServiceTest {
+
+    private final JedisPooled jedisPooled = mock(JedisPooled.class);
+    private final TokenEpochService tokenEpochService = new TokenEpochService(jedisPooled, 60, 1000);
+
+    @Test
+    void readsTheEpochOfAUserFromRedisOnlyOnce() {
+        when(jedisPooled.get("token_epoch:42")).thenReturn("3");
+
+        for (int request = 0; request < 100; request++) {
+            assertThat(tokenEpochService.currentEpoch(42L)).isEqualTo(3L);
+        }
+
+        verify(jedisPooled, times(1)).get("token_epoch:42");
+    }
+
+    @Test
+    void startsTheUsersWithoutEpochAtZero() {
+        assertThat(tokenEpochService.currentEpoch(7L)).isZero();
+        assertThat(tokenEpochService.currentEpoch(7L)).isZero();
+
+        verify(jedisPooled, times(1)).get("token_epoch:7");
+    }
+
+    @Test
+    void servesTheIncrementedEpochLocallyAndPublishesIt() {
+        when(jedisPooled.incr("token_epoch:42")).thenReturn(4L);
+
+        assertThat(tokenEpochService.incrementEpoch(42L)).isEqualTo(4L);
+
+        assertThat(tokenEpochService.currentEpoch(42L)).isEqualTo(4L);
+        verify(jedisPooled, never()).get("token_epoch:42");
+        verify(jedisPooled).publish("token_epoch", "42:4");
+    }
+}
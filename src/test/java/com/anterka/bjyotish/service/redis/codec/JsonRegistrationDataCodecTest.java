@@ -0,0 +1,47 @@
+package com.anterka.bjyotish.service.redis.codec;
+
+import com.anterka.bjyotish.config.GsonConfig;
+import com.anterka.bjyotish.service.helper.RegistrationData;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonRegistrationDataCodecTest {
+
+    private final RegistrationDataCodec codec = new JsonRegistrationDataCodec(new GsonConfig().gson());
+
+    @Test
+    void roundTripsAClientWithBirthDetails() {
+        assertRoundTrip(RegistrationDataFixtures.client(RegistrationDataFixtures.birthDetails()));
+    }
+
+    @Test
+    void roundTripsAClientWithoutBirthDetails() {
+        assertRoundTrip(RegistrationDataFixtures.client(null));
+    }
+
+    @Test
+    void roundTripsAnAstrologer() {
+        assertRoundTrip(RegistrationDataFixtures.astrologer("Pandit Ravi"));
+        assertRoundTrip(RegistrationDataFixtures.astrologer(null));
+    }
+
+    @Test
+    void supportsOnlyItsOwnPayloads() {
+        RegistrationData registrationData = RegistrationDataFixtures.client(RegistrationDataFixtures.birthDetails());
+
+        assertThat(codec.supports(codec.encode(registrationData))).isTrue();
+        assertThat(codec.supports(new BinaryRegistrationDataCodec().encode(registrationData))).isFalse();
+        assertThat(codec.supports(new byte[0])).isFalse();
+    }
+
+    private void assertRoundTrip(RegistrationData registrationData) {
+        RegistrationData decoded = codec.decode(codec.encode(registrationData));
+
+        assertThat(decoded.getUserRole()).isEqualTo(registrationData.getUserRole());
+        assertThat(decoded.getUserRegistrationRequest())
+                .isExactlyInstanceOf(registrationData.getUserRegistrationRequest().getClass())
+                .usingRecursiveComparison()
+                .isEqualTo(registrationData.getUserRegistrationRequest());
+    }
+}
@@ -0,0 +1,59 @@
+package com.anterka.bjyotish.service.redis.codec;
+
+import com.anterka.bjyotish.constants.enums.UserRoleEnum;
+import com.anterka.bjyotish.dto.users.request.AstrologerRegistrationRequest;
+import com.anterka.bjyotish.dto.users.request.BirthDetailsRequest;
+import com.anterka.bjyotish.dto.users.request.ClientRegistrationRequest;
+import com.anterka.bjyotish.dto.users.request.UserRegistrationRequest;
+import com.anterka.bjyotish.service.helper.RegistrationData;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Registration payloads shared by the codec tests
+ */
+final class RegistrationDataFixtures {
+
+    private RegistrationDataFixtures() {
+    }
+
+    static RegistrationData client(BirthDetailsRequest birthDetails) {
+        ClientRegistrationRequest request = new ClientRegistrationRequest();
+        fillCommonFields(request);
+        request.setBirthDetails(birthDetails);
+        return RegistrationData.builder().userRole(UserRoleEnum.CLIENT).userRegistrationRequest(request).build();
+    }
+
+    static RegistrationData astrologer(String displayName) {
+        AstrologerRegistrationRequest request = new AstrologerRegistrationRequest();
+        fillCommonFields(request);
+        request.setDisplayName(displayName);
+        return RegistrationData.builder().userRole(UserRoleEnum.ASTROLOGER).userRegistrationRequest(request).build();
+    }
+
+    static BirthDetailsRequest birthDetails() {
+        return BirthDetailsRequest.builder()
+                .birthDate(LocalDate.of(1990, 1, 15))
+                .birthTime(LocalTime.of(5, 42, 17))
+                .city("Varanasi")
+                .state("Uttar Pradesh")
+                .country("India")
+                .birthLatitude(new BigDecimal("25.31765800"))
+                .birthLongitude(new BigDecimal("82.97391400"))
+                .timezone("Asia/Kolkata")
+                .isBirthTimeAccurate(false)
+                .build();
+    }
+
+    private static void fillCommonFields(UserRegistrationRequest request) {
+        request.setEmail("asha@example.com");
+        request.setPhone("+919876543210");
+        request.setPassword("S3cret@pass");
+        request.setFirstName("Asha");
+        request.setLastName("Shankar");
+        request.setGender("female");
+        request.setAcceptTerms(true);
+    }
+}
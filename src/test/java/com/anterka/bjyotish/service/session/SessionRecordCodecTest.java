@@ -0,0 +1,68 @@
+package com.anterka.bjyotish.service.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionRecordCodecTest {
+
+    private static final Instant CREATED_AT = Instant.parse("2026-10-18T06:30:00.123Z");
+
+    @Test
+    void roundTripsAllTheFields() {
+        SessionRecord session = session(UUID.randomUUID(), "203.0.113.7",
+                "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/129.0 Safari/537.36");
+
+        assertThat(SessionRecordCodec.decode(SessionRecordCodec.encode(session))).usingRecursiveComparison().isEqualTo(session);
+    }
+
+    @Test
+    void roundTripsTheMissingOptionalFields() {
+        SessionRecord session = session(null, null, null);
+
+        assertThat(SessionRecordCodec.decode(SessionRecordCodec.encode(session))).usingRecursiveComparison().isEqualTo(session);
+    }
+
+    @Test
+    void keepsTheSeparatorFreeOddCharactersOfTheUserAgent() {
+        SessionRecord session = session(UUID.randomUUID(), "2001:db8::1", "agent\twith \"quotes\", emoji \uD83D\uDE80 and\rcarriage return");
+
+        assertThat(SessionRecordCodec.decode(SessionRecordCodec.encode(session)).userAgent()).isEqualTo(session.userAgent());
+    }
+
+    @Test
+    void placesTheFieldsReadByTheLuaScriptsAtTheirDocumentedPositions() {
+        SessionRecord session = session(UUID.randomUUID(), "203.0.113.7", "curl/8.5.0");
+
+        String[] fields = SessionRecordCodec.encode(session).split("\n", -1);
+
+        assertThat(fields).hasSize(10);
+        assertThat(fields[2]).isEqualTo(SessionRecordCodec.hex(session.refreshTokenHash()));
+        assertThat(fields[4]).isEqualTo(String.valueOf(session.expiresAt().toEpochMilli()));
+        assertThat(fields[5]).isEqualTo(String.valueOf(session.createdAt().toEpochMilli()));
+        assertThat(fields[6]).isEqualTo(String.valueOf(session.updatedAt().toEpochMilli()));
+        assertThat(fields[7]).isEqualTo("1");
+    }
+
+    @Test
+    void resolvesTheUserAndTheSessionOfTheIndexValue() {
+        SessionRecord session = session(UUID.randomUUID(), "203.0.113.7", "curl/8.5.0");
+
+        String index = SessionRecordCodec.index(session);
+
+        assertThat(SessionRecordCodec.userIdOfIndex(index)).isEqualTo(42L);
+        assertThat(SessionRecordCodec.sessionIdOfIndex(index)).isEqualTo(session.sessionId());
+    }
+
+    private static SessionRecord session(UUID accessTokenId, String ipAddress, String userAgent) {
+        byte[] refreshTokenHash = new byte[32];
+        for (int i = 0; i < refreshTokenHash.length; i++) {
+            refreshTokenHash[i] = (byte) (i * 37);
+        }
+        return new SessionRecord(UUID.randomUUID(), 42L, refreshTokenHash, accessTokenId,
+                CREATED_AT.plusSeconds(7 * 24 * 3600), CREATED_AT, CREATED_AT.plusSeconds(60), true, ipAddress, userAgent);
+    }
+}